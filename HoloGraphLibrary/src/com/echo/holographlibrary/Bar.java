@@ -32,6 +32,7 @@ public class Bar {
 	private String mName = "";
 	private double mValue = 0;
 	private String mValueString = null;
+	private String mFormattedValue = null;
 	private Path mPath = null;
 	private Region mRegion = null;
 	
@@ -58,6 +59,7 @@ public class Bar {
 	}
 	public Bar setValue(double value) {
 		this.mValue = value;
+		mFormattedValue = null;
         return this;
 	}
 	
@@ -66,7 +68,10 @@ public class Bar {
 		if (mValueString != null) {
 			return mValueString;
 		} else {
-			return String.valueOf(mValue);
+			if (mFormattedValue == null) {
+				mFormattedValue = String.valueOf(mValue);
+			}
+			return mFormattedValue;
 		}
 	}
 	
@@ -76,16 +81,27 @@ public class Bar {
         return this;
 	}
 	
+	/**
+	 * @deprecated BarGraph hit tests bars from its column layout and no longer
+	 * keeps a selection path or region per bar.
+	 */
+	@Deprecated
 	public Path getPath() {
 		return mPath;
 	}
+	/** @deprecated See {@link #getPath()}. */
+	@Deprecated
 	public Bar setPath(Path path) {
 		this.mPath = path;
         return this;
 	}
+	/** @deprecated See {@link #getPath()}. */
+	@Deprecated
 	public Region getRegion() {
 		return mRegion;
 	}
+	/** @deprecated See {@link #getPath()}. */
+	@Deprecated
 	public Bar setRegion(Region region) {
 		this.mRegion = region;
         return this;
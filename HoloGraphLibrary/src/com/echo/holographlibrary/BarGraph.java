@@ -31,46 +31,171 @@ import android.graphics.Bitmap.Config;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Path;
-import android.graphics.Point;
+import android.graphics.PorterDuff;
 import android.graphics.Rect;
 import android.graphics.RectF;
-import android.graphics.Region;
 import android.graphics.drawable.NinePatchDrawable;
+import android.os.Looper;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
+import android.view.ViewConfiguration;
+import android.widget.Scroller;
 
 public class BarGraph extends View {
 
 	private final static int AXIS_LABEL_FONT_SIZE = 15;
 
     private ArrayList<Bar> mBars = new ArrayList<Bar>();
+    private final ArrayList<Bar> mSpareBars = new ArrayList<Bar>();
+    private int mPreferredWidth = 0;
+    private int mPreferredHeight = 0;
     private Paint mPaint = new Paint();
-    private Rect mRect = null;
+    private final Rect mRect = new Rect();
     private boolean mShowBarText = false;
     private boolean mShowBarTextMax = false;
     private int mIndexSelected = -1;
     private OnBarClickedListener mListener;
     private Bitmap mFullImage;
+    private final Canvas mImageCanvas = new Canvas();
+    private final Canvas mPopupCanvas = new Canvas();
+    private final LabelCache mLabelCache = new LabelCache();
+    private NinePatchDrawable mPopup;
+    private float mDensity;
+    private float mScaledDensity;
     private boolean mShouldUpdate = false;
+    private boolean mScheduledRendering = false;
+    private boolean mDeferredUpdate = false;
+    private int mImageBackground = Color.TRANSPARENT;
+    private final Rect mVisibleRect = new Rect();
+    private final int[] mDirtyColumns = new int[16];
+    private int mDirtyCount = 0;
     private float mPadding = 7.0f;
     private float mBottomPadding = 30.0f;
     private double mMaxValue = 0;
+    private int mMaxIndex = -1;
+    private boolean mMaxDirty = true;
     private int mValueFontSize = 10;
 
+    private BarMatrix mMatrix;
+
+    // Layout shared by drawing and touch handling, refreshed by computeLayout()
+    private final BarLayout mLayout = new BarLayout() {
+        @Override
+        double getValue(int index) {
+            return getColumnValue(index);
+        }
+    };
+
+    private float mMinBarWidth = 0;
+    private Scroller mScroller;
+    private VelocityTracker mVelocityTracker;
+    private int mTouchSlop;
+    private int mMinFlingVelocity;
+    private int mMaxFlingVelocity;
+    private float mDownX;
+    private float mLastX;
+    private boolean mDragging = false;
+
     private Context mContext = null;
 
     public BarGraph(Context context) {
         super(context);
         mContext = context;
+        init();
     }
 
     public BarGraph(Context context, AttributeSet attrs) {
         super(context, attrs);
         mContext = context;
+        init();
     }
 
+    private void init() {
+        GraphMemoryManager.getInstance().register(mContext);
+        mPopup = (NinePatchDrawable)this.getResources().getDrawable(R.drawable.popup_black);
+        mDensity = mContext.getResources().getDisplayMetrics().density;
+        mScaledDensity = mContext.getResources().getDisplayMetrics().scaledDensity;
+
+        mScroller = new Scroller(mContext);
+        ViewConfiguration configuration = ViewConfiguration.get(mContext);
+        mTouchSlop = configuration.getScaledTouchSlop();
+        mMinFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaxFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+    }
+
+    /**
+     * Leaves rebuilding the graph image after a data change to the shared
+     * {@link RenderScheduler} instead of doing it in the next draw. The previous
+     * image stays on screen until the scheduler gets to this graph; scrolling and
+     * selection still redraw immediately.
+     */
+    public BarGraph setScheduledRendering(boolean scheduled) {
+        mScheduledRendering = scheduled;
+        if (!scheduled) {
+            RenderScheduler.getInstance().cancel(mRenderTask);
+            mDeferredUpdate = false;
+        }
+        postInvalidate();
+        return this;
+    }
+
+    private void requestRebuild() {
+        mShouldUpdate = true;
+        mDeferredUpdate = mScheduledRendering;
+        if (mScheduledRendering) {
+            RenderScheduler.getInstance().schedule(mRenderTask);
+        } else {
+            postInvalidate();
+        }
+    }
+
+    private final RenderScheduler.Task mRenderTask = new RenderScheduler.Task() {
+        @Override
+        boolean isVisible() {
+            return isShown() && getGlobalVisibleRect(mVisibleRect);
+        }
+
+        @Override
+        void rebuild() {
+            if (!mShouldUpdate || getWidth() <= 0 || getHeight() <= 0) return;
+            rebuildImage();
+            invalidate();
+        }
+    };
+
+    /**
+     * Colour the graph image is filled with before drawing. A fully opaque
+     * colour lets the image use RGB_565, half the memory of the default
+     * transparent ARGB_8888 image.
+     */
+    public BarGraph setImageBackground(int color) {
+        mImageBackground = color;
+        requestRebuild();
+        return this;
+    }
+
+    @Override
+    public boolean isOpaque() {
+        return Color.alpha(mImageBackground) == 255;
+    }
+
+    private final GraphMemoryManager.Client mMemoryClient = new GraphMemoryManager.Client() {
+        @Override
+        boolean isVisible() {
+            return isShown() && getGlobalVisibleRect(mVisibleRect);
+        }
+
+        @Override
+        void releaseCaches() {
+            GraphMemoryManager.release(mFullImage, mImageCanvas);
+            mFullImage = null;
+            mLabelCache.clear();
+            invalidate();
+        }
+    };
+
     public BarGraph setShowBarText(boolean show){
         mShowBarText = show;
         return this;
@@ -83,11 +208,186 @@ public class BarGraph extends View {
 
     public BarGraph setBars(ArrayList<Bar> points){
         mBars = points;
-        mShouldUpdate = true;
-        postInvalidate();
+        mMaxDirty = true;
+        requestRebuild();
+        return this;
+    }
+
+    /**
+     * Rebinds the graph to new values, typically from a list adapter recycling
+     * the view. The existing Bar objects (and their colours) are reused, as are
+     * the image and label caches; bars past count are kept aside for the next
+     * rebind. names may be null to keep the current names.
+     */
+    public BarGraph rebindBars(double[] values, String[] names, int count) {
+        while (mBars.size() > count) {
+            mSpareBars.add(mBars.remove(mBars.size() - 1));
+        }
+        mBars.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            Bar bar;
+            if (i < mBars.size()) {
+                bar = mBars.get(i);
+            } else {
+                bar = mSpareBars.isEmpty() ? new Bar() : mSpareBars.remove(mSpareBars.size() - 1);
+                mBars.add(bar);
+            }
+            bar.setValue(values[i]);
+            if (names != null) {
+                bar.setName(names[i]);
+            }
+        }
+        mIndexSelected = -1;
+        mMaxDirty = true;
+        requestRebuild();
+        return this;
+    }
+
+    /** Size the graph asks for when its layout size is not fixed, in pixels. */
+    public BarGraph setPreferredSize(int width, int height) {
+        mPreferredWidth = width;
+        mPreferredHeight = height;
+        requestLayout();
         return this;
     }
 
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (mPreferredWidth <= 0 || mPreferredHeight <= 0) {
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            return;
+        }
+        setMeasuredDimension(resolveSize(mPreferredWidth, widthMeasureSpec),
+                resolveSize(mPreferredHeight, heightMeasureSpec));
+    }
+
+    /**
+     * Shows a stacked or grouped bar graph for the given matrix instead of the
+     * Bar list, drawing every series in one pass. Pass null to go back to the
+     * Bar list. Changes made to the matrix afterwards redraw the graph.
+     */
+    public BarGraph setBarMatrix(BarMatrix matrix) {
+        if (mMatrix != null) {
+            mMatrix.setOnChangeListener(null);
+        }
+        mMatrix = matrix;
+        if (mMatrix != null) {
+            mMatrix.setOnChangeListener(mMatrixListener);
+        }
+        mMaxDirty = true;
+        requestRebuild();
+        return this;
+    }
+
+    public BarMatrix getBarMatrix() {
+        return mMatrix;
+    }
+
+    private final BarMatrix.OnChangeListener mMatrixListener = new BarMatrix.OnChangeListener() {
+        @Override
+        public void onBarMatrixChanged(int category, boolean scaleChanged) {
+            if (Looper.myLooper() != Looper.getMainLooper()) {
+                // Sources such as Histogram publish from their own threads; the
+                // view is only touched on the main thread, with one full rebuild
+                // standing for every change that arrived in between
+                removeCallbacks(mMatrixChangedRunnable);
+                post(mMatrixChangedRunnable);
+                return;
+            }
+            if (category >= 0 && !scaleChanged) {
+                invalidateColumn(category);
+            } else {
+                mMaxDirty |= scaleChanged;
+                requestRebuild();
+            }
+        }
+    };
+
+    private final Runnable mMatrixChangedRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mMatrixListener.onBarMatrixChanged(-1, true);
+        }
+    };
+
+    /**
+     * Changes the value of one bar. Unless the change moves the graph's maximum
+     * (and so the scale of every bar), only the affected columns of the cached
+     * image are repainted and invalidated. Must be called on the UI thread.
+     * While a BarMatrix is shown, change its cells instead.
+     *
+     * @throws IllegalStateException if a BarMatrix is set
+     */
+    public BarGraph updateBar(int index, double value) {
+        if (mMatrix != null) {
+            throw new IllegalStateException("The graph shows a BarMatrix, update its cells instead");
+        }
+        mBars.get(index).setValue(value);
+        if (mMaxDirty || value >= mMaxValue || index == mMaxIndex) {
+            mMaxDirty = true;
+            requestRebuild();
+        } else {
+            invalidateColumn(index);
+        }
+        return this;
+    }
+
+    // Queues a column for repainting into the cached image on the next draw.
+    // The queue is only touched on the UI thread, by updateBar, matrix changes
+    // and onDraw.
+    private void invalidateColumn(int index) {
+        if (mShouldUpdate || mLayout.slot <= 0) {
+            requestRebuild();
+            return;
+        }
+        if (mDirtyCount == mDirtyColumns.length) {
+            // Too many pending columns, a full redraw is cheaper
+            mDirtyCount = 0;
+            requestRebuild();
+            return;
+        }
+        mDirtyColumns[mDirtyCount++] = index;
+
+        int left  = mLayout.getSlotsLeft(index - 1);
+        int right = mLayout.getSlotsRight(index + 1);
+        if (right > 0 && left < getWidth()) {
+            invalidate(Math.max(0, left), 0, Math.min(getWidth(), right), getHeight());
+        }
+    }
+
+    // Repaints the queued columns and their neighbours, whose labels and
+    // value popups may overlap them, clipped to the dirty area.
+    private void drawDirtyColumns() {
+        final Canvas canvas = mImageCanvas;
+        final int barCount = getBarCount();
+        final int first = mLayout.getFirstVisible();
+        final int last  = mLayout.getLastVisible();
+
+        for (int d = 0; d < mDirtyCount; d++) {
+            final int index = mDirtyColumns[d];
+            if (index < first || index > last || index >= barCount) continue;
+
+            final int from = Math.max(0, index - 1);
+            final int to   = Math.min(barCount - 1, index + 1);
+            int left  = mLayout.getSlotsLeft(from);
+            int right = mLayout.getSlotsRight(to);
+
+            canvas.save();
+            canvas.clipRect(left, 0, right, getHeight());
+            if (isOpaque()) {
+                canvas.drawColor(mImageBackground);
+            } else {
+                canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+            }
+            drawAxis(canvas);
+            for (int i = Math.max(0, from - 1); i <= Math.min(barCount - 1, to + 1); i++) {
+                drawColumn(canvas, i);
+            }
+            canvas.restore();
+        }
+        mDirtyCount = 0;
+    }
+
     public BarGraph setPadding(float factor) {
         mPadding = factor;
         return this;
@@ -103,164 +403,379 @@ public class BarGraph extends View {
         return this;
     }
 
+    /**
+     * Sets the minimum width of a bar in dp. When the bars do not fit the view at
+     * this width the graph scrolls horizontally, and only the bars inside the
+     * visible window are laid out, drawn and hit-tested. 0 (the default) always
+     * fits every bar into the view.
+     */
+    public BarGraph setMinBarWidth(float width) {
+        mMinBarWidth = width;
+        requestRebuild();
+        return this;
+    }
+
     public ArrayList<Bar> getBars(){
         return mBars;
     }
 
-    void drawGraph(boolean drawAxis, boolean drawBars) {
-        mFullImage = Bitmap.createBitmap(getWidth(), getHeight(), Config.ARGB_8888);
-        Canvas canvas = new Canvas(mFullImage);
-        canvas.drawColor(Color.TRANSPARENT);
-        NinePatchDrawable popup = (NinePatchDrawable)this.getResources().getDrawable(R.drawable.popup_black);
-
-        final float density       = mContext.getResources().getDisplayMetrics().density;
-        final float scaledDensity = mContext.getResources().getDisplayMetrics().scaledDensity;
-        final float padding       = mPadding * density;
-        final int selectPadding   = (int) (4 * density);
-        final float bottomPadding = mBottomPadding * density;
-        final double maxValue     = mMaxValue <= 0 ? 1 : mMaxValue;
+    private int getBarCount() {
+        return mMatrix != null ? mMatrix.getCategoryCount() : mBars.size();
+    }
 
-        // Draw x-axis line
-        if (drawAxis) {
-            mPaint.setColor(Color.BLACK);
-            mPaint.setStrokeWidth(2 * density);
-            mPaint.setAlpha(50);
-            mPaint.setAntiAlias(true);
-            canvas.drawLine(0, getHeight()-bottomPadding + 10*density, getWidth(), getHeight()-bottomPadding+10*density, mPaint);
+    private float getSlotWidth() {
+        float minSlotWidth = mMinBarWidth > 0 ? (mMinBarWidth + mPadding * 2) * mDensity : 0;
+        return BarLayout.getSlotWidth(getWidth(), getBarCount(), minSlotWidth);
+    }
+
+    private float getMaxScrollOffset() {
+        return BarLayout.getMaxScrollOffset(getSlotWidth(), getBarCount(), getWidth());
+    }
+
+    private boolean isScrollable() {
+        return getMaxScrollOffset() > 0;
+    }
+
+    private void setScrollOffset(float offset) {
+        offset = Math.max(0, Math.min(offset, getMaxScrollOffset()));
+        if (offset != mLayout.scrollOffset) {
+            mLayout.scrollOffset = offset;
+            mShouldUpdate = true;
+            mDeferredUpdate = false;
+            invalidate();
         }
+    }
 
-        float barWidth = (getWidth() / mBars.size()) - (padding * 2);
+    private void updateMaxValue() {
+        if (mMatrix != null) {
+            mMaxValue = mMatrix.getMaxValue();
+            mMaxIndex = mMatrix.getMaxCategory();
+            mMaxDirty = false;
+            return;
+        }
+        mMaxValue = 0;
+        mMaxIndex = -1;
+        // Maximum y value = largest bar value; the first bar holding it gets the max label.
+        for (int i = 0; i < mBars.size(); i++) {
+            double value = mBars.get(i).getValue();
+            if (value > mMaxValue) {
+                mMaxValue = value;
+                mMaxIndex = i;
+            }
+        }
+        mMaxDirty = false;
+    }
+
+    private void prepareImage() {
+        Config config = isOpaque() ? Config.RGB_565 : Config.ARGB_8888;
+        if (mFullImage == null || mFullImage.isRecycled() || mFullImage.getConfig() != config
+                || mFullImage.getWidth() != getWidth() || mFullImage.getHeight() != getHeight()) {
+            GraphMemoryManager.release(mFullImage, mImageCanvas);
+            mFullImage = Bitmap.createBitmap(getWidth(), getHeight(), config);
+            mImageCanvas.setBitmap(mFullImage);
+            if (isOpaque()) mFullImage.eraseColor(mImageBackground);
+        } else {
+            mFullImage.eraseColor(mImageBackground);
+        }
+    }
 
+    private void computeLayout() {
+        final BarLayout layout    = mLayout;
+        final float density       = mDensity;
+        final float bottomPadding = mBottomPadding * density;
+
+        layout.count        = getBarCount();
+        layout.viewWidth    = getWidth();
+        layout.padding      = mPadding * density;
+        layout.max          = mMaxValue <= 0 ? 1 : mMaxValue;
+        layout.scrollOffset = Math.min(layout.scrollOffset, getMaxScrollOffset());
+        layout.slot         = getSlotWidth();
+        layout.barWidth     = layout.slot - (layout.padding * 2);
+        layout.baseline     = getHeight() - bottomPadding;
 
-        float usableHeight;
         if (mShowBarText || mShowBarTextMax) {
-            mPaint.setTextSize(mValueFontSize * scaledDensity);
-            Rect r3 = new Rect();
-            mPaint.getTextBounds("$", 0, 1, r3);
-            usableHeight = getHeight() - bottomPadding - r3.height() - 24 * density;
+            mPaint.setTextSize(mValueFontSize * mScaledDensity);
+            Rect r3 = mLabelCache.getLayout(mPaint, "$").firstCharBounds;
+            layout.usableHeight = getHeight() - bottomPadding - r3.height() - 24 * density;
         } else {
-            usableHeight = getHeight() - bottomPadding;
-        }
-
-        mRect = new Rect();
-
-        if (drawBars) {
-            int count = 0;
-
-            boolean maxShown = false;
-            for (final Bar bar : mBars) {
-                // Set bar bounds
-                int left   = (int) (padding * 2 * count + padding + barWidth * count);
-                int top    = (int) (getHeight() - bottomPadding - (usableHeight * (bar.getValue() / maxValue)));
-                int right  = (int) (padding * 2 * count + padding + barWidth * (count+1));
-                int bottom = (int) (getHeight()-bottomPadding);
-                mRect.set(left, top, right, bottom);
-
-                // Draw bar
-                mPaint.setColor(bar.getColor());
-                mPaint.setAlpha(255);
-                canvas.drawRect(mRect, mPaint);
-
-                // Create selection region
-                final int sp = selectPadding;
-                Path path = new Path();
-                path.addRect(new RectF(mRect.left-sp, mRect.top-sp, mRect.right+sp, mRect.bottom+sp), Path.Direction.CW);
-                bar.setPath(path);
-                bar.setRegion(new Region(mRect.left-sp, mRect.top-sp, mRect.right+sp, mRect.bottom+sp));
-
-                // Draw x-axis label text
-                mPaint.setTextSize(AXIS_LABEL_FONT_SIZE * scaledDensity);
-                int textHalfWidth = (int) (mPaint.measureText(bar.getName()) * 0.5f);
-                int x = (int)(mRect.centerX()-textHalfWidth);
-                int y = (int)(getHeight()-3 * scaledDensity);
-                canvas.drawText(bar.getName(), x, y, mPaint);
-
-                boolean showThisMax = (!maxShown && bar.getValue() == maxValue);
-                maxShown |= showThisMax;
-
-                // Draw value text
-                if (mShowBarText || (mShowBarTextMax && showThisMax)) {
-                    mPaint.setTextSize(mValueFontSize * scaledDensity);
-                    mPaint.setColor(Color.WHITE);
-                    Rect r2 = new Rect();
-                    String text = bar.getValueString();
-                    mPaint.getTextBounds(text, 0, 1, r2);
-
-                    int boundLeft  = (int) (mRect.centerX() - textHalfWidth - 10 * density);
-                    int boundTop   = (int) (mRect.top + (r2.top - r2.bottom) - 18 * density);
-                    int boundRight = (int) (mRect.centerX() + textHalfWidth + 10 * density);
-                    popup.setBounds(boundLeft, boundTop, boundRight, mRect.top);
-                    popup.draw(canvas);
-
-                    canvas.drawText(text,
-                        (int) mRect.centerX() - textHalfWidth,
-                        mRect.top - (mRect.top - boundTop) * 0.5f + (float) r2.height() * 0.5f * 0.7f,
-                        mPaint);
-                }
-                if (mIndexSelected == count && mListener != null) {
-                    mPaint.setColor(Color.parseColor("#33B5E5"));
-                    mPaint.setAlpha(100);
-                    canvas.drawPath(bar.getPath(), mPaint);
-                    mPaint.setAlpha(255);
-                }
-                count++;
+            layout.usableHeight = getHeight() - bottomPadding;
+        }
+    }
+
+    private double getColumnValue(int index) {
+        return mMatrix != null ? mMatrix.getColumnValue(index) : mBars.get(index).getValue();
+    }
+
+    private void getColumnRect(int index, Rect out) {
+        out.set(mLayout.getLeft(index), mLayout.getTop(index), mLayout.getRight(index), mLayout.getBottom());
+    }
+
+    void drawGraph(boolean drawAxis, boolean drawBars) {
+        prepareImage();
+        Canvas canvas = mImageCanvas;
+        computeLayout();
+
+        if (drawAxis) {
+            drawAxis(canvas);
+        }
+
+        if (drawBars && getBarCount() > 0) {
+            // Only the bars intersecting the visible window are laid out and drawn
+            final int first = mLayout.getFirstVisible();
+            final int last  = mLayout.getLastVisible();
+
+            for (int count = first; count <= last; count++) {
+                drawColumn(canvas, count);
             }
         }
     }
 
-    public void onDraw(Canvas ca) {
+    // Draw x-axis line
+    private void drawAxis(Canvas canvas) {
+        final float density = mDensity;
+        mPaint.setColor(Color.BLACK);
+        mPaint.setStrokeWidth(2 * density);
+        mPaint.setAlpha(50);
+        mPaint.setAntiAlias(true);
+        final float y = mLayout.baseline + 10*density;
+        canvas.drawLine(0, y, getWidth(), y, mPaint);
+    }
+
+    private void drawColumn(Canvas canvas, int count) {
+        final float density       = mDensity;
+        final float scaledDensity = mScaledDensity;
+        final int selectPadding   = (int) (4 * density);
+
+        // Set bar bounds
+        getColumnRect(count, mRect);
+
+        final Bar bar;
+        final String name;
+        if (mMatrix != null) {
+            bar = null;
+            name = mMatrix.getCategoryName(count);
+            drawMatrixColumn(canvas, count);
+            mPaint.setColor(mMatrix.getSeriesColor(0));
+        } else {
+            bar = mBars.get(count);
+            name = bar.getName();
+
+            // Draw bar
+            mPaint.setColor(bar.getColor());
+            mPaint.setAlpha(255);
+            canvas.drawRect(mRect, mPaint);
+        }
 
-        boolean drawBars = true;
+        // Draw x-axis label text
+        mPaint.setTextSize(AXIS_LABEL_FONT_SIZE * scaledDensity);
+        int textHalfWidth = (int) (mLabelCache.getLayout(mPaint, name).width * 0.5f);
+        int x = (int)(mRect.centerX()-textHalfWidth);
+        int y = (int)(getHeight()-3 * scaledDensity);
+        canvas.drawText(name, x, y, mPaint);
 
-        if (mFullImage == null || mShouldUpdate) {
-            mMaxValue = 0;
-            // Maximum y value = sum of all values.
-            for (final Bar bar : mBars) {
-                if (bar.getValue() > mMaxValue) {
-                    mMaxValue = bar.getValue();
+        boolean showThisMax = (count == mMaxIndex);
+
+        // Draw value text
+        if (mShowBarText || (mShowBarTextMax && showThisMax)) {
+            mPaint.setTextSize(mValueFontSize * scaledDensity);
+            mPaint.setColor(Color.WHITE);
+            String text = bar != null ? bar.getValueString() : mMatrix.getValueString(count);
+            Rect r2 = mLabelCache.getLayout(mPaint, text).firstCharBounds;
+
+            int boundLeft  = (int) (mRect.centerX() - textHalfWidth - 10 * density);
+            int boundTop   = (int) (mRect.top + (r2.top - r2.bottom) - 18 * density);
+            int boundRight = (int) (mRect.centerX() + textHalfWidth + 10 * density);
+            int popupWidth  = boundRight - boundLeft;
+            int popupHeight = mRect.top - boundTop;
+
+            // The popup background and its text are rendered once per distinct value and size
+            Bitmap popup = null;
+            if (popupWidth > 0 && popupHeight > 0) {
+                popup = mLabelCache.getPopup(mPaint, text, popupWidth, popupHeight);
+                if (popup == null) {
+                    popup = Bitmap.createBitmap(popupWidth, popupHeight, Config.ARGB_8888);
+                    mPopupCanvas.setBitmap(popup);
+                    mPopup.setBounds(0, 0, popupWidth, popupHeight);
+                    mPopup.draw(mPopupCanvas);
+                    mPopupCanvas.drawText(text,
+                        (int) mRect.centerX() - textHalfWidth - boundLeft,
+                        popupHeight * 0.5f + (float) r2.height() * 0.5f * 0.7f,
+                        mPaint);
+                    mLabelCache.putPopup(mPaint, text, popupWidth, popupHeight, popup);
                 }
+                canvas.drawBitmap(popup, boundLeft, boundTop, null);
             }
+        }
+        if (mIndexSelected == count && mListener != null) {
+            final int sp = selectPadding;
+            mPaint.setColor(Color.parseColor("#33B5E5"));
+            mPaint.setAlpha(100);
+            canvas.drawRect(mRect.left-sp, mRect.top-sp, mRect.right+sp, mRect.bottom+sp, mPaint);
+            mPaint.setAlpha(255);
+        }
+    }
 
-            if (mMaxValue <= 0) {
-                drawBars = false;
+    // Draws every series of one category, stacked on top of each other or side by side
+    private void drawMatrixColumn(Canvas canvas, int category) {
+        final BarMatrix matrix = mMatrix;
+        final int seriesCount = matrix.getSeriesCount();
+        final float baseline = mLayout.baseline;
+        final float scale = (float) (mLayout.usableHeight / mLayout.max);
+        final float subWidth = (float) mRect.width() / seriesCount;
+
+        for (int s = 0; s < seriesCount; s++) {
+            mPaint.setColor(matrix.getSeriesColor(s));
+            mPaint.setAlpha(255);
+            if (matrix.getMode() == BarMatrix.STACKED) {
+                float top    = baseline - (float) matrix.getStackTop(s, category) * scale;
+                float bottom = baseline - (float) matrix.getStackBottom(s, category) * scale;
+                canvas.drawRect(mRect.left, top, mRect.right, bottom, mPaint);
+            } else {
+                float left = mRect.left + subWidth * s;
+                float top  = baseline - (float) matrix.getValue(s, category) * scale;
+                canvas.drawRect(left, top, left + subWidth, baseline, mPaint);
+            }
+        }
+    }
+
+    private void rebuildImage() {
+        synchronized (getDataLock()) {
+            if (mMaxDirty) {
+                updateMaxValue();
             }
 
             drawGraph(true, true);
+        }
+
+        mShouldUpdate = false;
+        mDeferredUpdate = false;
+        mDirtyCount = 0;
+    }
 
-            mShouldUpdate = false;
+    public void onDraw(Canvas ca) {
+
+        boolean imageUsable = mFullImage != null && !mFullImage.isRecycled()
+                && mFullImage.getWidth() == getWidth() && mFullImage.getHeight() == getHeight();
+
+        if (imageUsable && mShouldUpdate && mDeferredUpdate) {
+            // Keep showing the previous image until the scheduler rebuilds it
+            RenderScheduler.getInstance().schedule(mRenderTask);
+        } else if (!imageUsable || mShouldUpdate) {
+            rebuildImage();
+        } else if (mDirtyCount > 0) {
+            synchronized (getDataLock()) {
+                drawDirtyColumns();
+            }
         }
 
         ca.drawBitmap(mFullImage, 0, 0, null);
+        GraphMemoryManager.getInstance().update(mMemoryClient,
+                GraphMemoryManager.getByteCount(mFullImage) + mLabelCache.getByteCount());
+    }
+
+    // Index of the bar under (x, y), found from the same slot math as drawGraph
+    // instead of testing every bar, or -1 when no bar is hit.
+    private int findBarAt(float x, float y) {
+        // Bars added or removed since the last draw are not laid out yet
+        if (mLayout.count != getBarCount()) return -1;
+        synchronized (getDataLock()) {
+            return mLayout.findColumnAt(x, y, (int) (4 * mDensity));
+        }
+    }
+
+    // Held while the bars are read. A matrix may be changed from another
+    // thread, as a Histogram's is, by a writer synchronized on the matrix.
+    private Object getDataLock() {
+        return mMatrix != null ? mMatrix : mBars;
     }
 
     @Override
-    public boolean onTouchEvent(MotionEvent event) {
+    public void computeScroll() {
+        if (mScroller.computeScrollOffset()) {
+            setScrollOffset(mScroller.getCurrX());
+            invalidate();
+        }
+    }
+
+    // Drags and flings the bars when they do not fit the view.
+    // Returns true when the event was consumed as a scroll gesture.
+    private boolean handleScroll(MotionEvent event) {
+        if (!isScrollable() && !mDragging) return false;
 
-        Point point = new Point();
-        point.x = (int) event.getX();
-        point.y = (int) event.getY();
-
-        int count = 0;
-        for (Bar bar : mBars){
-            Region r = new Region();
-            r.setPath(bar.getPath(), bar.getRegion());
-            if (r.contains((int)point.x,(int) point.y) && event.getAction() == MotionEvent.ACTION_DOWN){
-                mIndexSelected = count;
-            } else if (event.getAction() == MotionEvent.ACTION_UP){
-                if (r.contains((int)point.x,(int) point.y) && mListener != null){
-                    if (mIndexSelected > -1) mListener.onClick(mIndexSelected);
-                    mIndexSelected = -1;
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        mVelocityTracker.addMovement(event);
+
+        final float x = event.getX();
+        switch (event.getAction()) {
+        case MotionEvent.ACTION_DOWN:
+            mScroller.forceFinished(true);
+            mDownX = x;
+            mLastX = x;
+            mDragging = false;
+            return false;
+        case MotionEvent.ACTION_MOVE:
+            if (!mDragging && Math.abs(x - mDownX) > mTouchSlop) {
+                mDragging = true;
+                mIndexSelected = -1;
+                mShouldUpdate = true;
+                mDeferredUpdate = false;
+                invalidate();
+                if (getParent() != null) {
+                    getParent().requestDisallowInterceptTouchEvent(true);
+                }
+            }
+            if (mDragging) {
+                setScrollOffset(mLayout.scrollOffset + mLastX - x);
+            }
+            mLastX = x;
+            return mDragging;
+        case MotionEvent.ACTION_UP:
+        case MotionEvent.ACTION_CANCEL:
+            boolean wasDragging = mDragging;
+            if (mDragging && event.getAction() == MotionEvent.ACTION_UP) {
+                mVelocityTracker.computeCurrentVelocity(1000, mMaxFlingVelocity);
+                int velocity = (int) mVelocityTracker.getXVelocity();
+                if (Math.abs(velocity) > mMinFlingVelocity) {
+                    mScroller.fling((int) mLayout.scrollOffset, 0, -velocity, 0, 0, (int) getMaxScrollOffset(), 0, 0);
+                    invalidate();
                 }
             }
-            else if(event.getAction() == MotionEvent.ACTION_CANCEL)
-            	mIndexSelected = -1;
+            mDragging = false;
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+            return wasDragging;
+        }
+        return mDragging;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+
+        if (handleScroll(event)) {
+            return true;
+        }
 
-            count++;
+        final int action = event.getAction();
+        final int previousSelected = mIndexSelected;
+        final int hit = findBarAt(event.getX(), event.getY());
+
+        if (action == MotionEvent.ACTION_DOWN) {
+            if (hit != -1) mIndexSelected = hit;
+        } else if (action == MotionEvent.ACTION_UP) {
+            if (hit != -1 && mListener != null) {
+                if (mIndexSelected > -1) mListener.onClick(mIndexSelected);
+                mIndexSelected = -1;
+            }
+        } else if (action == MotionEvent.ACTION_CANCEL) {
+            mIndexSelected = -1;
         }
 
-        int action = event.getAction();
-        if (action == MotionEvent.ACTION_DOWN || action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+        // The selection highlight is the only thing a touch changes in the image
+        if (mIndexSelected != previousSelected && mListener != null) {
             mShouldUpdate = true;
+            mDeferredUpdate = false;
             postInvalidate();
         }
 
@@ -270,8 +785,11 @@ public class BarGraph extends View {
     @Override
     protected void onDetachedFromWindow()
     {
-    	if(mFullImage != null)
-    		mFullImage.recycle();
+        RenderScheduler.getInstance().cancel(mRenderTask);
+        GraphMemoryManager.getInstance().remove(mMemoryClient);
+    	GraphMemoryManager.release(mFullImage, mImageCanvas);
+    	mFullImage = null;
+    	mLabelCache.clear();
 
     	super.onDetachedFromWindow();
     }
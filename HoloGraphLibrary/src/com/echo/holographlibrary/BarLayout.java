@@ -0,0 +1,110 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+package com.echo.holographlibrary;
+
+/**
+ * Column geometry of a BarGraph: where each bar sits for the current size,
+ * scroll offset and maximum, and which bar a touch falls on. Kept apart from
+ * the view so drawing, invalidation and hit testing share one set of math.
+ */
+abstract class BarLayout {
+	int count;
+	int viewWidth;
+	float slot, barWidth, padding, baseline, usableHeight;
+	double max = 1;
+	float scrollOffset;
+
+	abstract double getValue(int index);
+
+	/** Width of one bar slot; minSlotWidth widens it and makes the bars scroll. */
+	static float getSlotWidth(int viewWidth, int count, float minSlotWidth) {
+		if (count == 0) return 0;
+		float slotWidth = viewWidth / count;
+		return Math.max(slotWidth, minSlotWidth);
+	}
+
+	static float getMaxScrollOffset(float slotWidth, int count, int viewWidth) {
+		return Math.max(0, slotWidth * count - viewWidth);
+	}
+
+	int getFirstVisible() {
+		if (slot <= 0) return 0;
+		return Math.max(0, Math.min(count - 1, (int) (scrollOffset / slot)));
+	}
+
+	int getLastVisible() {
+		if (slot <= 0) return count - 1;
+		return Math.max(0, Math.min(count - 1, (int) ((scrollOffset + viewWidth) / slot)));
+	}
+
+	// Pixel span of the slots from..to, rounded outwards
+	int getSlotsLeft(int from) {
+		return (int) Math.floor(slot * from - scrollOffset);
+	}
+
+	int getSlotsRight(int to) {
+		return (int) Math.ceil(slot * (to + 1) - scrollOffset);
+	}
+
+	int getLeft(int index) {
+		return (int) (slot * index + padding - scrollOffset);
+	}
+
+	int getRight(int index) {
+		return (int) (slot * index + padding + barWidth - scrollOffset);
+	}
+
+	int getTop(int index) {
+		return (int) (baseline - (usableHeight * (getValue(index) / max)));
+	}
+
+	int getBottom() {
+		return (int) baseline;
+	}
+
+	/**
+	 * Index of the bar whose rectangle, grown by slop on every side, contains
+	 * (x, y), or -1. Only the slot under x and its neighbours are tested.
+	 */
+	int findColumnAt(float x, float y, int slop) {
+		if (slot <= 0 || count == 0) return -1;
+
+		final int index = (int) Math.floor((x + scrollOffset) / slot);
+		final int px = (int) x;
+		final int py = (int) y;
+		// Neighbours are checked too in case the slop reaches into their slot
+		final int from = Math.max(0, index - 1);
+		final int to = Math.min(count - 1, index + 1);
+		for (int i = from; i <= to; i++) {
+			int left = getLeft(i) - slop;
+			int top = getTop(i) - slop;
+			int right = getRight(i) + slop;
+			int bottom = getBottom() + slop;
+			if (left < right && top < bottom && px >= left && px < right && py >= top && py < bottom) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,295 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+
+package com.echo.holographlibrary;
+
+import android.graphics.Color;
+
+/**
+ * Multi-series bar data for stacked or grouped bar graphs, stored as a
+ * primitive [series][category] matrix. Stack heights are kept as per-category
+ * prefix sums and the graph maximum is maintained incrementally, so changing a
+ * single cell costs O(series) unless it lowers the current maximum.
+ *
+ * A matrix shown by a BarGraph may be changed from another thread while
+ * synchronized on the matrix; the graph holds the same lock while it reads it.
+ */
+public class BarMatrix {
+
+	public static final int STACKED = 0;
+	public static final int GROUPED = 1;
+
+	private final int mSeriesCount;
+	private final int mCategoryCount;
+	private final double[][] mValues;
+	// mStackTops[s][c] = sum of mValues[0..s][c]
+	private final double[][] mStackTops;
+	private final int[] mColors;
+	private final String[] mNames;
+	private final String[] mValueStrings;
+	private int mMode = STACKED;
+
+	private double mMaxTotal = 0;
+	private int mMaxTotalCategory = -1;
+	private double mMaxCell = 0;
+	private int mMaxCellSeries = -1;
+	private int mMaxCellCategory = -1;
+
+	private OnChangeListener mListener;
+
+	interface OnChangeListener {
+		// category is -1 when every category changed
+		void onBarMatrixChanged(int category, boolean scaleChanged);
+	}
+
+	public BarMatrix(int seriesCount, int categoryCount) {
+		if (seriesCount <= 0 || categoryCount < 0) {
+			throw new IllegalArgumentException("Invalid matrix size " + seriesCount + "x" + categoryCount);
+		}
+		mSeriesCount = seriesCount;
+		mCategoryCount = categoryCount;
+		mValues = new double[seriesCount][categoryCount];
+		mStackTops = new double[seriesCount][categoryCount];
+		mColors = new int[seriesCount];
+		mNames = new String[categoryCount];
+		mValueStrings = new String[categoryCount];
+		for (int s = 0; s < seriesCount; s++) {
+			mColors[s] = Color.BLACK;
+		}
+		for (int c = 0; c < categoryCount; c++) {
+			mNames[c] = "";
+		}
+	}
+
+	public int getSeriesCount() {
+		return mSeriesCount;
+	}
+
+	public int getCategoryCount() {
+		return mCategoryCount;
+	}
+
+	public int getMode() {
+		return mMode;
+	}
+
+	public BarMatrix setMode(int mode) {
+		if (mode != STACKED && mode != GROUPED) {
+			throw new IllegalArgumentException("Unknown mode " + mode);
+		}
+		mMode = mode;
+		clearValueStrings();
+		notifyChanged(-1, true);
+		return this;
+	}
+
+	public int getSeriesColor(int series) {
+		return mColors[series];
+	}
+
+	public BarMatrix setSeriesColor(int series, int color) {
+		mColors[series] = color;
+		notifyChanged(-1, false);
+		return this;
+	}
+
+	public String getCategoryName(int category) {
+		return mNames[category];
+	}
+
+	public BarMatrix setCategoryName(int category, String name) {
+		mNames[category] = name;
+		notifyChanged(category, false);
+		return this;
+	}
+
+	/**
+	 * Replaces every category name. names must hold getCategoryCount() entries.
+	 */
+	public BarMatrix setCategoryNames(String[] names) {
+		if (names.length != mCategoryCount) {
+			throw new IllegalArgumentException("Expected " + mCategoryCount + " names, got " + names.length);
+		}
+		System.arraycopy(names, 0, mNames, 0, mCategoryCount);
+		notifyChanged(-1, false);
+		return this;
+	}
+
+	public double getValue(int series, int category) {
+		return mValues[series][category];
+	}
+
+	public BarMatrix setValue(int series, int category, double value) {
+		mValues[series][category] = value;
+		updateStack(category);
+		mValueStrings[category] = null;
+
+		boolean totalChanged = updateMaxTotal(category);
+		boolean cellChanged = updateMaxCell(series, category, value);
+		notifyChanged(category, mMode == STACKED ? totalChanged : cellChanged);
+		return this;
+	}
+
+	/**
+	 * Replaces every value of one series. values must hold getCategoryCount() entries.
+	 */
+	public BarMatrix setSeriesValues(int series, double[] values) {
+		if (values.length != mCategoryCount) {
+			throw new IllegalArgumentException("Expected " + mCategoryCount + " values, got " + values.length);
+		}
+		System.arraycopy(values, 0, mValues[series], 0, mCategoryCount);
+		for (int c = 0; c < mCategoryCount; c++) {
+			updateStack(c);
+		}
+		clearValueStrings();
+		rescanMaxTotal();
+		rescanMaxCell();
+		notifyChanged(-1, true);
+		return this;
+	}
+
+	/** Bottom of the given series' segment in a stacked column. */
+	public double getStackBottom(int series, int category) {
+		return series == 0 ? 0 : mStackTops[series - 1][category];
+	}
+
+	/** Top of the given series' segment in a stacked column. */
+	public double getStackTop(int series, int category) {
+		return mStackTops[series][category];
+	}
+
+	public double getCategoryTotal(int category) {
+		return mStackTops[mSeriesCount - 1][category];
+	}
+
+	public double getCategoryMax(int category) {
+		double max = mValues[0][category];
+		for (int s = 1; s < mSeriesCount; s++) {
+			if (mValues[s][category] > max) max = mValues[s][category];
+		}
+		return max;
+	}
+
+	/** Height of a category's column: its total when stacked, its largest value when grouped. */
+	public double getColumnValue(int category) {
+		return mMode == STACKED ? getCategoryTotal(category) : getCategoryMax(category);
+	}
+
+	public double getMaxValue() {
+		return mMode == STACKED ? mMaxTotal : mMaxCell;
+	}
+
+	/** The category holding getMaxValue(), or -1 if no value is positive. */
+	public int getMaxCategory() {
+		return mMode == STACKED ? mMaxTotalCategory : mMaxCellCategory;
+	}
+
+	String getValueString(int category) {
+		if (mValueStrings[category] == null) {
+			mValueStrings[category] = String.valueOf(getColumnValue(category));
+		}
+		return mValueStrings[category];
+	}
+
+	void setOnChangeListener(OnChangeListener listener) {
+		mListener = listener;
+	}
+
+	private void updateStack(int category) {
+		double sum = 0;
+		for (int s = 0; s < mSeriesCount; s++) {
+			sum += mValues[s][category];
+			mStackTops[s][category] = sum;
+		}
+	}
+
+	// Returns true when the maximum total moved
+	private boolean updateMaxTotal(int category) {
+		double total = getCategoryTotal(category);
+		if (total > mMaxTotal) {
+			mMaxTotal = total;
+			mMaxTotalCategory = category;
+			return true;
+		}
+		if (category == mMaxTotalCategory && total < mMaxTotal) {
+			rescanMaxTotal();
+			return true;
+		}
+		return false;
+	}
+
+	// Returns true when the maximum cell moved
+	private boolean updateMaxCell(int series, int category, double value) {
+		if (value > mMaxCell) {
+			mMaxCell = value;
+			mMaxCellSeries = series;
+			mMaxCellCategory = category;
+			return true;
+		}
+		if (series == mMaxCellSeries && category == mMaxCellCategory && value < mMaxCell) {
+			rescanMaxCell();
+			return true;
+		}
+		return false;
+	}
+
+	private void rescanMaxTotal() {
+		mMaxTotal = 0;
+		mMaxTotalCategory = -1;
+		for (int c = 0; c < mCategoryCount; c++) {
+			double total = getCategoryTotal(c);
+			if (total > mMaxTotal) {
+				mMaxTotal = total;
+				mMaxTotalCategory = c;
+			}
+		}
+	}
+
+	private void rescanMaxCell() {
+		mMaxCell = 0;
+		mMaxCellSeries = -1;
+		mMaxCellCategory = -1;
+		for (int s = 0; s < mSeriesCount; s++) {
+			for (int c = 0; c < mCategoryCount; c++) {
+				if (mValues[s][c] > mMaxCell) {
+					mMaxCell = mValues[s][c];
+					mMaxCellSeries = s;
+					mMaxCellCategory = c;
+				}
+			}
+		}
+	}
+
+	private void clearValueStrings() {
+		for (int c = 0; c < mCategoryCount; c++) {
+			mValueStrings[c] = null;
+		}
+	}
+
+	private void notifyChanged(int category, boolean scaleChanged) {
+		if (mListener != null) {
+			mListener.onBarMatrixChanged(category, scaleChanged);
+		}
+	}
+}
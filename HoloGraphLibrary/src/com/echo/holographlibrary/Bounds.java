@@ -0,0 +1,64 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+package com.echo.holographlibrary;
+
+/** Bounds of the data a LineGraph draws, gathered in one pass by computeBounds. */
+final class Bounds {
+	float minX, maxX, minY, maxY;
+	boolean empty = true;
+
+	void reset() {
+		minX = maxX = minY = maxY = 0;
+		empty = true;
+	}
+
+	void include(float x, float y) {
+		if (empty) {
+			minX = maxX = x;
+			minY = maxY = y;
+			empty = false;
+			return;
+		}
+		if (x < minX) minX = x;
+		if (x > maxX) maxX = x;
+		if (y < minY) minY = y;
+		if (y > maxY) maxY = y;
+	}
+
+	/** Samples from to to of a time series, relative to timeBase. NaN values are skipped. */
+	void include(TimeSeries series, long timeBase, int from, int to) {
+		for (int i = from; i < to; i++) {
+			float y = (float) series.getValue(i);
+			if (Float.isNaN(y)) continue;
+			include((float) (series.getTime(i) - timeBase), y);
+		}
+	}
+
+	/** A compressed series' range, taken from its block headers without decoding. */
+	void include(CompressedSeries series) {
+		if (series.size() == 0) return;
+		include(series.getMinX(), series.getMinY());
+		include(series.getMaxX(), series.getMaxY());
+	}
+}
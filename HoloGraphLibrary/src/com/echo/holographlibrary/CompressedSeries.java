@@ -0,0 +1,378 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+package com.echo.holographlibrary;
+
+import java.util.Arrays;
+
+/**
+ * Append-only series of (x, y) samples stored with Gorilla-style compression,
+ * for keeping long recordings in memory as a Line of a LineGraph.
+ *
+ * Samples are grouped into blocks of a fixed number of samples. Within a
+ * block x is stored as the delta of the previous delta, which costs a single
+ * bit for evenly spaced samples, and y as the XOR with the previous value's
+ * bits, which only stores the bits that changed. Every block keeps its x range
+ * and its first, last, minimum and maximum y in plain arrays, so a renderer can
+ * skip blocks outside the viewport or summarize narrow blocks without
+ * decoding them, and decode only the blocks it actually draws.
+ *
+ * x must never decrease. All methods are synchronized, so samples can be
+ * appended from a background thread while the graph draws.
+ */
+public class CompressedSeries {
+
+	public static final int DEFAULT_BLOCK_SIZE = 512;
+
+	private final int mBlockSize;
+
+	// Block headers; the last block is the open one while it has room
+	private int mBlockCount = 0;
+	private long[] mFirstX = new long[8];
+	private long[] mLastX = new long[8];
+	private float[] mFirstY = new float[8];
+	private float[] mLastY = new float[8];
+	private float[] mMinY = new float[8];
+	private float[] mMaxY = new float[8];
+	private int[] mCounts = new int[8];
+	// Encoded sealed blocks, null for the open block which lives in mBuffer
+	private byte[][] mData = new byte[8][];
+
+	// Encoder state of the open block
+	private final byte[] mBuffer;
+	private int mBitPosition = 0;
+	private long mPrevDelta;
+	private int mPrevBits;
+	private int mPrevLeading;
+	private int mPrevTrailing;
+
+	// Decoder state
+	private byte[] mReadData;
+	private int mReadPosition;
+
+	private int mSize = 0;
+	private long mEncodedBytes = 0;
+
+	public CompressedSeries() {
+		this(DEFAULT_BLOCK_SIZE);
+	}
+
+	public CompressedSeries(int blockSize) {
+		if (blockSize < 2) {
+			throw new IllegalArgumentException("Invalid block size " + blockSize);
+		}
+		mBlockSize = blockSize;
+		// Worst case per sample: 68 bits of x and 44 bits of y (2 control bits,
+		// 5 + 5 bits of window and 32 meaningful bits), 14 bytes together
+		mBuffer = new byte[blockSize * 14 + 16];
+	}
+
+	public synchronized void append(long x, float y) {
+		int block = mBlockCount - 1;
+		if (block >= 0 && x < mLastX[block]) {
+			throw new IllegalArgumentException("x must not decrease: " + x + " after " + mLastX[block]);
+		}
+
+		final int bits = Float.floatToRawIntBits(y);
+		if (block < 0 || mCounts[block] == mBlockSize) {
+			if (block >= 0) {
+				seal(block);
+			}
+			block = startBlock(x, y);
+			writeBits(x, 64);
+			writeBits(bits, 32);
+			mPrevDelta = 0;
+			mPrevLeading = -1;
+		} else {
+			final long delta = x - mLastX[block];
+			writeDeltaOfDelta(delta - mPrevDelta);
+			mPrevDelta = delta;
+			writeXor(bits ^ mPrevBits);
+
+			mLastX[block] = x;
+			mLastY[block] = y;
+			if (y < mMinY[block]) mMinY[block] = y;
+			if (y > mMaxY[block]) mMaxY[block] = y;
+		}
+		mPrevBits = bits;
+		mCounts[block]++;
+		mSize++;
+	}
+
+	private int startBlock(long x, float y) {
+		if (mBlockCount == mCounts.length) {
+			int capacity = mBlockCount * 2;
+			mFirstX = (long[]) copy(mFirstX, new long[capacity], mBlockCount);
+			mLastX = (long[]) copy(mLastX, new long[capacity], mBlockCount);
+			mFirstY = (float[]) copy(mFirstY, new float[capacity], mBlockCount);
+			mLastY = (float[]) copy(mLastY, new float[capacity], mBlockCount);
+			mMinY = (float[]) copy(mMinY, new float[capacity], mBlockCount);
+			mMaxY = (float[]) copy(mMaxY, new float[capacity], mBlockCount);
+			mCounts = (int[]) copy(mCounts, new int[capacity], mBlockCount);
+			mData = (byte[][]) copy(mData, new byte[capacity][], mBlockCount);
+		}
+		final int block = mBlockCount++;
+		mFirstX[block] = mLastX[block] = x;
+		mFirstY[block] = mLastY[block] = mMinY[block] = mMaxY[block] = y;
+		mCounts[block] = 0;
+		mData[block] = null;
+		return block;
+	}
+
+	// Arrays.copyOf needs API 9
+	private static Object copy(Object from, Object to, int length) {
+		System.arraycopy(from, 0, to, 0, length);
+		return to;
+	}
+
+	private void seal(int block) {
+		final int length = (mBitPosition + 7) >>> 3;
+		mData[block] = (byte[]) copy(mBuffer, new byte[length], length);
+		mEncodedBytes += length;
+		Arrays.fill(mBuffer, 0, length, (byte) 0);
+		mBitPosition = 0;
+	}
+
+	// Delta of delta in buckets of 7, 9 and 12 bits, 64 bits for anything larger
+	private void writeDeltaOfDelta(long dod) {
+		if (dod == 0) {
+			writeBits(0, 1);
+		} else if (dod >= -63 && dod <= 64) {
+			writeBits(0x2, 2);
+			writeBits(dod + 63, 7);
+		} else if (dod >= -255 && dod <= 256) {
+			writeBits(0x6, 3);
+			writeBits(dod + 255, 9);
+		} else if (dod >= -2047 && dod <= 2048) {
+			writeBits(0xe, 4);
+			writeBits(dod + 2047, 12);
+		} else {
+			writeBits(0xf, 4);
+			writeBits(dod, 64);
+		}
+	}
+
+	// XOR with the previous value, reusing the previous window of meaningful bits when it fits
+	private void writeXor(int xor) {
+		if (xor == 0) {
+			writeBits(0, 1);
+			return;
+		}
+		final int leading = Math.min(Integer.numberOfLeadingZeros(xor), 31);
+		final int trailing = Integer.numberOfTrailingZeros(xor);
+		if (mPrevLeading >= 0 && leading >= mPrevLeading && trailing >= mPrevTrailing) {
+			writeBits(0x2, 2);
+			writeBits(xor >>> mPrevTrailing, 32 - mPrevLeading - mPrevTrailing);
+		} else {
+			final int length = 32 - leading - trailing;
+			writeBits(0x3, 2);
+			writeBits(leading, 5);
+			writeBits(length - 1, 5);
+			writeBits(xor >>> trailing, length);
+			mPrevLeading = leading;
+			mPrevTrailing = trailing;
+		}
+	}
+
+	private void writeBits(long value, int bits) {
+		while (bits > 0) {
+			final int free = 8 - (mBitPosition & 7);
+			final int n = Math.min(free, bits);
+			final int chunk = (int) (value >>> (bits - n)) & ((1 << n) - 1);
+			mBuffer[mBitPosition >>> 3] |= chunk << (free - n);
+			mBitPosition += n;
+			bits -= n;
+		}
+	}
+
+	private long readBits(int bits) {
+		long value = 0;
+		while (bits > 0) {
+			final int free = 8 - (mReadPosition & 7);
+			final int n = Math.min(free, bits);
+			final int chunk = ((mReadData[mReadPosition >>> 3] & 0xff) >>> (free - n)) & ((1 << n) - 1);
+			value = (value << n) | chunk;
+			mReadPosition += n;
+			bits -= n;
+		}
+		return value;
+	}
+
+	/**
+	 * Decodes one block into xs and ys, which must hold getBlockSize() entries,
+	 * and returns the number of samples decoded.
+	 */
+	public synchronized int decode(int block, long[] xs, float[] ys) {
+		final int count = mCounts[block];
+		mReadData = mData[block] != null ? mData[block] : mBuffer;
+		mReadPosition = 0;
+
+		long x = readBits(64);
+		int bits = (int) readBits(32);
+		long delta = 0;
+		int leading = 0, trailing = 0;
+		xs[0] = x;
+		ys[0] = Float.intBitsToFloat(bits);
+		for (int i = 1; i < count; i++) {
+			delta += readDeltaOfDelta();
+			x += delta;
+
+			if (readBits(1) != 0) {
+				if (readBits(1) != 0) {
+					leading = (int) readBits(5);
+					trailing = 32 - leading - ((int) readBits(5) + 1);
+				}
+				bits ^= (int) readBits(32 - leading - trailing) << trailing;
+			}
+			xs[i] = x;
+			ys[i] = Float.intBitsToFloat(bits);
+		}
+		mReadData = null;
+		return count;
+	}
+
+	private long readDeltaOfDelta() {
+		if (readBits(1) == 0) return 0;
+		if (readBits(1) == 0) return readBits(7) - 63;
+		if (readBits(1) == 0) return readBits(9) - 255;
+		if (readBits(1) == 0) return readBits(12) - 2047;
+		return readBits(64);
+	}
+
+	/** Index of the last block starting at or before x, or 0 when x precedes every block. */
+	public synchronized int findBlock(long x) {
+		int low = 0;
+		int high = mBlockCount - 1;
+		while (low < high) {
+			final int mid = (low + high + 1) >>> 1;
+			if (mFirstX[mid] <= x) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Index of the sample nearest to x, or -1 if the series is empty. xs and ys
+	 * are used to decode the block holding x and must hold getBlockSize()
+	 * entries; on return xs[0] and ys[0] hold the sample found.
+	 */
+	public synchronized int findNearest(double x, long[] xs, float[] ys) {
+		if (mBlockCount == 0) return -1;
+		final int block = findBlock((long) Math.floor(x));
+		final int count = decode(block, xs, ys);
+		if (count == 0) return -1;
+		int low = 0, high = count;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (xs[mid] < x) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		int i = low;
+		if (i > 0 && (i == count || x - xs[i - 1] < xs[i] - x)) i--;
+		// Past the end of the block the next block's first sample may be nearer
+		if (i == count - 1 && block + 1 < mBlockCount && mFirstX[block + 1] - x < x - xs[i]) {
+			xs[0] = mFirstX[block + 1];
+			ys[0] = mFirstY[block + 1];
+			return (block + 1) * mBlockSize;
+		}
+		xs[0] = xs[i];
+		ys[0] = ys[i];
+		return block * mBlockSize + i;
+	}
+
+	public int getBlockSize() {
+		return mBlockSize;
+	}
+
+	public synchronized int size() {
+		return mSize;
+	}
+
+	public synchronized int getBlockCount() {
+		return mBlockCount;
+	}
+
+	public synchronized int getBlockSampleCount(int block) {
+		return mCounts[block];
+	}
+
+	public synchronized long getBlockFirstX(int block) {
+		return mFirstX[block];
+	}
+
+	public synchronized long getBlockLastX(int block) {
+		return mLastX[block];
+	}
+
+	public synchronized float getBlockFirstY(int block) {
+		return mFirstY[block];
+	}
+
+	public synchronized float getBlockLastY(int block) {
+		return mLastY[block];
+	}
+
+	public synchronized float getBlockMinY(int block) {
+		return mMinY[block];
+	}
+
+	public synchronized float getBlockMaxY(int block) {
+		return mMaxY[block];
+	}
+
+	public synchronized long getMinX() {
+		return mBlockCount > 0 ? mFirstX[0] : 0;
+	}
+
+	public synchronized long getMaxX() {
+		return mBlockCount > 0 ? mLastX[mBlockCount - 1] : 0;
+	}
+
+	/** Smallest y from the block headers, without decoding. */
+	public synchronized float getMinY() {
+		float min = Float.POSITIVE_INFINITY;
+		for (int b = 0; b < mBlockCount; b++) {
+			if (mMinY[b] < min) min = mMinY[b];
+		}
+		return mBlockCount > 0 ? min : 0;
+	}
+
+	public synchronized float getMaxY() {
+		float max = Float.NEGATIVE_INFINITY;
+		for (int b = 0; b < mBlockCount; b++) {
+			if (mMaxY[b] > max) max = mMaxY[b];
+		}
+		return mBlockCount > 0 ? max : 0;
+	}
+
+	/** Approximate memory held by the encoded samples and the block headers. */
+	public synchronized long getByteCount() {
+		return mEncodedBytes + mBuffer.length + (long) mCounts.length * 44;
+	}
+}
@@ -0,0 +1,350 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+package com.echo.holographlibrary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+/**
+ * Draws the lines of a LineGraph as a density map: every line is rasterized
+ * into an accumulation grid of view resolution, counting how many lines cross
+ * each pixel, and the grid is colour-mapped into the graph image in one pass.
+ * Cost grows with the number of points and pixels, not with draw calls.
+ * Large graphs are rasterized in parallel, one grid per thread, and the grids
+ * summed afterwards.
+ */
+class DensityRenderer {
+
+	private static final int PARALLEL_THRESHOLD = 1 << 15;
+	private static final int[] DEFAULT_COLORS = {
+		0x0033B5E5, 0x8033B5E5, 0xFF33B5E5, 0xFFFFBB33, 0xFFFF4444
+	};
+
+	private static ExecutorService sExecutor;
+
+	private int[] mPalette = buildPalette(DEFAULT_COLORS);
+	private final int[] mBlended = new int[256];
+	private Task[] mTasks = new Task[0];
+	private int[] mPixels = new int[0];
+	private int[] mLevels = new int[0];
+
+	/** Colour stops from the lowest to the highest density. */
+	void setColors(int[] colors) {
+		mPalette = buildPalette(colors);
+	}
+
+	void render(ArrayList<Line> lines, Bitmap bitmap, int background, PixelMapping mapping) {
+		final int width = bitmap.getWidth();
+		final int height = bitmap.getHeight();
+		final int threads = Runtime.getRuntime().availableProcessors();
+		final int taskCount = countPoints(lines) < PARALLEL_THRESHOLD || threads < 2 ? 1 : threads;
+
+		if (mTasks.length != taskCount) {
+			mTasks = new Task[taskCount];
+		}
+		for (int t = 0; t < taskCount; t++) {
+			if (mTasks[t] == null) mTasks[t] = new Task();
+			mTasks[t].prepare(lines, t, taskCount, width, height, mapping);
+		}
+
+		final int[] grid = mTasks[0].mGrid;
+		if (taskCount == 1) {
+			mTasks[0].call();
+		} else {
+			ExecutorService executor = getExecutor(threads);
+			ArrayList<Future<int[]>> parts = new ArrayList<Future<int[]>>(taskCount);
+			for (int t = 0; t < taskCount; t++) {
+				parts.add(executor.submit(mTasks[t]));
+			}
+			try {
+				for (int t = 0; t < taskCount; t++) {
+					int[] part = parts.get(t).get();
+					if (t == 0) continue;
+					for (int i = 0; i < part.length; i++) {
+						grid[i] += part[i];
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while rasterizing lines", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Rasterizing lines failed", e.getCause());
+			}
+		}
+		colorMap(grid, width, height, background, bitmap);
+	}
+
+	private void colorMap(int[] grid, int width, int height, int background, Bitmap bitmap) {
+		final int size = width * height;
+		int max = 0;
+		for (int i = 0; i < size; i++) {
+			if (grid[i] > max) max = grid[i];
+		}
+
+		// Palette over the background, as an opaque image has no alpha to blend with
+		final boolean opaque = Color.alpha(background) == 255;
+		for (int i = 0; i < 256; i++) {
+			mBlended[i] = opaque ? blend(mPalette[i], background) : mPalette[i];
+		}
+
+		// Log scale so single lines stay visible next to dense bundles
+		final int levels = Math.min(max, 1 << 16) + 1;
+		if (mLevels.length < levels) {
+			mLevels = new int[levels];
+		}
+		final double scale = max > 0 ? 255 / Math.log1p(max) : 0;
+		for (int c = 1; c < levels; c++) {
+			mLevels[c] = mBlended[(int) (Math.log1p(c) * scale)];
+		}
+
+		if (mPixels.length < size) {
+			mPixels = new int[size];
+		}
+		final int[] pixels = mPixels;
+		for (int i = 0; i < size; i++) {
+			final int count = grid[i];
+			if (count == 0) {
+				pixels[i] = background;
+			} else if (count < levels) {
+				pixels[i] = mLevels[count];
+			} else {
+				pixels[i] = mBlended[(int) (Math.log1p(count) * scale)];
+			}
+		}
+		bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
+	}
+
+	long getByteCount() {
+		long bytes = 4L * (mPixels.length + mLevels.length);
+		for (Task task : mTasks) {
+			if (task != null) bytes += 4L * task.mGrid.length;
+		}
+		return bytes;
+	}
+
+	void release() {
+		mTasks = new Task[0];
+		mPixels = new int[0];
+		mLevels = new int[0];
+	}
+
+	private static int countPoints(ArrayList<Line> lines) {
+		int points = 0;
+		for (int i = 0; i < lines.size(); i++) {
+			Line line = lines.get(i);
+			if (!line.isVisible()) {
+				continue;
+			} else if (line.getTimeSeries() != null) {
+				points += line.getTimeSeries().size();
+			} else if (line.getSeries() != null) {
+				points += line.getSeries().size();
+			} else {
+				points += line.getSize();
+			}
+		}
+		return points;
+	}
+
+	private static int[] buildPalette(int[] colors) {
+		if (colors.length < 2) {
+			throw new IllegalArgumentException("At least two colours are required");
+		}
+		int[] palette = new int[256];
+		for (int i = 0; i < 256; i++) {
+			float position = i / 255f * (colors.length - 1);
+			int stop = Math.min((int) position, colors.length - 2);
+			palette[i] = lerp(colors[stop], colors[stop + 1], position - stop);
+		}
+		return palette;
+	}
+
+	private static int lerp(int from, int to, float t) {
+		return Color.argb(
+				(int) (Color.alpha(from) + (Color.alpha(to) - Color.alpha(from)) * t),
+				(int) (Color.red(from) + (Color.red(to) - Color.red(from)) * t),
+				(int) (Color.green(from) + (Color.green(to) - Color.green(from)) * t),
+				(int) (Color.blue(from) + (Color.blue(to) - Color.blue(from)) * t));
+	}
+
+	private static int blend(int color, int background) {
+		return lerp(background | 0xff000000, color | 0xff000000, Color.alpha(color) / 255f);
+	}
+
+	private static synchronized ExecutorService getExecutor(int threads) {
+		if (sExecutor == null) {
+			sExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "LineGraph density");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return sExecutor;
+	}
+
+	// Rasterizes every stride-th line, starting at first, into its own grid
+	private static final class Task implements Callable<int[]> {
+		int[] mGrid = new int[0];
+		private ArrayList<Line> mLines;
+		private int mFirst, mStride, mWidth, mHeight;
+		private PixelMapping mMapping;
+		private double mScaleX, mScaleY;
+		private long[] mSeriesX = new long[0];
+		private float[] mSeriesY = new float[0];
+
+		private boolean mHasLast;
+		private float mLastX, mLastY;
+
+		void prepare(ArrayList<Line> lines, int first, int stride, int width, int height, PixelMapping mapping) {
+			mLines = lines;
+			mFirst = first;
+			mStride = stride;
+			mWidth = width;
+			mHeight = height;
+			mMapping = mapping;
+			mScaleX = mapping.scaleX();
+			mScaleY = mapping.scaleY();
+			if (mGrid.length < width * height) {
+				mGrid = new int[width * height];
+			}
+		}
+
+		@Override
+		public int[] call() {
+			Arrays.fill(mGrid, 0, mWidth * mHeight, 0);
+			for (int i = mFirst; i < mLines.size(); i += mStride) {
+				if (mLines.get(i).isVisible()) rasterize(mLines.get(i));
+			}
+			return mGrid;
+		}
+
+		private void rasterize(Line line) {
+			final PixelMapping m = mMapping;
+			mHasLast = false;
+			TimeSeries timeSeries = line.getTimeSeries();
+			CompressedSeries series = line.getSeries();
+			if (timeSeries != null) {
+				synchronized (timeSeries) {
+					final int from = Math.max(0, timeSeries.lowerBound(m.timeBase + (long) Math.floor(m.minX)) - 1);
+					final int to = Math.min(timeSeries.size(), timeSeries.upperBound(m.timeBase + (long) Math.ceil(m.maxX)) + 1);
+					for (int i = from; i < to; i++) {
+						add((timeSeries.getTime(i) - m.timeBase) - (double) m.minX, timeSeries.getValue(i) - m.minY);
+					}
+				}
+			} else if (series != null) {
+				if (series.size() == 0) return;
+				if (mSeriesX.length < series.getBlockSize()) {
+					mSeriesX = new long[series.getBlockSize()];
+					mSeriesY = new float[series.getBlockSize()];
+				}
+				final int first = series.findBlock((long) Math.floor(m.minX));
+				final int last = series.findBlock((long) Math.ceil(m.maxX));
+				for (int b = first; b <= last; b++) {
+					final int count = series.decode(b, mSeriesX, mSeriesY);
+					for (int i = 0; i < count; i++) {
+						add(mSeriesX[i] - (double) m.minX, mSeriesY[i] - (double) m.minY);
+					}
+				}
+			} else {
+				ArrayList<LinePoint> points = line.getPoints();
+				for (int i = 0; i < points.size(); i++) {
+					LinePoint point = points.get(i);
+					add(point.getX() - (double) m.minX, point.getY() - (double) m.minY);
+				}
+			}
+		}
+
+		private void add(double x, double y) {
+			final float px = (float) (mMapping.left + x * mScaleX);
+			final float py = (float) (mMapping.bottom - y * mScaleY);
+			if (Float.isNaN(px) || Float.isNaN(py)) {
+				mHasLast = false;
+				return;
+			}
+			if (mHasLast) {
+				// The shared end point was counted with the previous segment
+				segment(mLastX, mLastY, px, py, true);
+			} else {
+				segment(px, py, px, py, false);
+			}
+			mLastX = px;
+			mLastY = py;
+			mHasLast = true;
+		}
+
+		// DDA over the segment clipped to the grid (Liang-Barsky)
+		private void segment(float x0, float y0, float x1, float y1, boolean skipStart) {
+			final float dx = x1 - x0;
+			final float dy = y1 - y0;
+			final float maxX = mWidth - 1;
+			final float maxY = mHeight - 1;
+			float t0 = 0, t1 = 1;
+			if (dx == 0) {
+				if (x0 < 0 || x0 > maxX) return;
+			} else {
+				float ta = -x0 / dx;
+				float tb = (maxX - x0) / dx;
+				if (ta > tb) { float swap = ta; ta = tb; tb = swap; }
+				t0 = Math.max(t0, ta);
+				t1 = Math.min(t1, tb);
+			}
+			if (dy == 0) {
+				if (y0 < 0 || y0 > maxY) return;
+			} else {
+				float ta = -y0 / dy;
+				float tb = (maxY - y0) / dy;
+				if (ta > tb) { float swap = ta; ta = tb; tb = swap; }
+				t0 = Math.max(t0, ta);
+				t1 = Math.min(t1, tb);
+			}
+			if (t0 > t1) return;
+			if (t0 > 0) skipStart = false;
+
+			final float cx0 = x0 + t0 * dx, cy0 = y0 + t0 * dy;
+			final float cdx = (t1 - t0) * dx, cdy = (t1 - t0) * dy;
+			final int steps = (int) Math.ceil(Math.max(Math.abs(cdx), Math.abs(cdy)));
+			final int[] grid = mGrid;
+			final int width = mWidth;
+			for (int s = skipStart ? 1 : 0; s <= steps; s++) {
+				final float f = steps > 0 ? (float) s / steps : 0;
+				final int x = Math.round(cx0 + cdx * f);
+				final int y = Math.round(cy0 + cdy * f);
+				if (x >= 0 && x < width && y >= 0 && y < mHeight) {
+					grid[y * width + x]++;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+package com.echo.holographlibrary;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Build;
+
+/**
+ * Keeps the memory held by graph caches (images, vertex buffers, label caches)
+ * within a process-wide budget. Graphs report their cache size whenever they
+ * draw; when the total goes over budget the caches of the least recently drawn
+ * graphs that are not on screen are released, to be rebuilt on their next draw.
+ *
+ * From Ice Cream Sandwich on the manager also listens to onTrimMemory and drops
+ * caches according to the trim level. On older releases an activity can
+ * forward its onLowMemory() to {@link #trimMemory(int)} with TRIM_MEMORY_COMPLETE.
+ *
+ * All calls apart from the budget accessors are expected on the main thread.
+ */
+public final class GraphMemoryManager {
+
+	private static GraphMemoryManager sInstance;
+
+	private final LinkedHashMap<Client, Boolean> mClients = new LinkedHashMap<Client, Boolean>(16, 0.75f, true);
+	private long mBudgetBytes = Runtime.getRuntime().maxMemory() / 8;
+	private long mTotalBytes = 0;
+	private boolean mCallbacksRegistered = false;
+
+	/** A graph's caches, created once per graph. */
+	static abstract class Client {
+		private long mBytes = 0;
+
+		abstract boolean isVisible();
+
+		/**
+		 * Frees every cache and invalidates the graph so it rebuilds them on its
+		 * next draw. Images may still be referenced by a display list, so they
+		 * are only recycled before Honeycomb.
+		 */
+		abstract void releaseCaches();
+	}
+
+	private GraphMemoryManager() {
+	}
+
+	public static synchronized GraphMemoryManager getInstance() {
+		if (sInstance == null) {
+			sInstance = new GraphMemoryManager();
+		}
+		return sInstance;
+	}
+
+	/** Maximum number of bytes all graph caches may hold. Defaults to an eighth of the heap limit. */
+	public synchronized void setBudget(long bytes) {
+		mBudgetBytes = bytes;
+		trimTo(mBudgetBytes, false, null);
+	}
+
+	public synchronized long getBudget() {
+		return mBudgetBytes;
+	}
+
+	public synchronized long getTotalBytes() {
+		return mTotalBytes;
+	}
+
+	static long getByteCount(Bitmap bitmap) {
+		return bitmap == null || bitmap.isRecycled() ? 0 : (long) bitmap.getRowBytes() * bitmap.getHeight();
+	}
+
+	/**
+	 * Releases a bitmap together with the canvas drawing into it. The canvas
+	 * would otherwise keep the pixels reachable after the graph drops the
+	 * bitmap. setBitmap(null) is only accepted from Honeycomb on, where the
+	 * bitmap is not recycled, so before that recycling frees the pixels instead.
+	 */
+	static void release(Bitmap bitmap, Canvas canvas) {
+		if (bitmap == null) return;
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+			canvas.setBitmap(null);
+		} else {
+			bitmap.recycle();
+		}
+	}
+
+	// Registers for trim callbacks the first time a graph is created
+	void register(Context context) {
+		synchronized (this) {
+			if (mCallbacksRegistered) return;
+			mCallbacksRegistered = true;
+		}
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+			context.getApplicationContext().registerComponentCallbacks(new TrimCallbacks());
+		}
+	}
+
+	/** Records the current cache size of a graph and marks it as most recently used. */
+	synchronized void update(Client client, long bytes) {
+		mTotalBytes += bytes - client.mBytes;
+		client.mBytes = bytes;
+		mClients.put(client, Boolean.TRUE);
+		if (mTotalBytes > mBudgetBytes) {
+			// The graph reporting is drawing right now, so its caches are kept
+			trimTo(mBudgetBytes, false, client);
+		}
+	}
+
+	synchronized void remove(Client client) {
+		if (mClients.remove(client) != null) {
+			mTotalBytes -= client.mBytes;
+			client.mBytes = 0;
+		}
+	}
+
+	/**
+	 * Drops caches for the given ComponentCallbacks2 trim level. While the UI
+	 * is showing only off-screen graphs are trimmed; once it is hidden every
+	 * cache is released.
+	 */
+	public synchronized void trimMemory(int level) {
+		if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+			trimTo(0, true, null);
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+			trimTo(0, false, null);
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+			trimTo(mBudgetBytes / 2, false, null);
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+			trimTo(mBudgetBytes * 3 / 4, false, null);
+		}
+	}
+
+	// Releases least recently drawn graphs first until the total fits the target
+	private void trimTo(long target, boolean includeVisible, Client keep) {
+		Iterator<Client> it = mClients.keySet().iterator();
+		while (mTotalBytes > target && it.hasNext()) {
+			Client client = it.next();
+			if (client == keep || (!includeVisible && client.isVisible())) continue;
+			client.releaseCaches();
+			mTotalBytes -= client.mBytes;
+			client.mBytes = 0;
+			it.remove();
+		}
+	}
+
+	// Kept in its own class so ComponentCallbacks2 is never loaded before Ice Cream Sandwich
+	@TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+	private class TrimCallbacks implements ComponentCallbacks2 {
+		@Override
+		public void onTrimMemory(int level) {
+			trimMemory(level);
+		}
+
+		@Override
+		public void onLowMemory() {
+			trimMemory(TRIM_MEMORY_COMPLETE);
+		}
+
+		@Override
+		public void onConfigurationChanged(Configuration newConfig) {
+		}
+	}
+}
@@ -0,0 +1,431 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+
+package com.echo.holographlibrary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Bins raw samples into a histogram that can be shown directly by a
+ * BarGraph through getBarMatrix(), without creating a Bar per bin.
+ *
+ * Bins are either fixed width over a range, explicit edges, or chosen
+ * automatically from the first samples with the Freedman-Diaconis rule.
+ * Large batches are binned in parallel on all cores and the partial counts
+ * merged. Samples can keep streaming in with addSamples(); automatic
+ * histograms widen their range by merging neighbouring bins, so the bin
+ * count (and the graph's layout) never changes.
+ *
+ * Samples may be added from any thread. The bar matrix is updated on the
+ * adding thread while synchronized on the matrix, and a BarGraph showing it
+ * reads it under the same lock and redraws on its own main thread.
+ */
+public class Histogram {
+
+	private static final int PARALLEL_THRESHOLD = 1 << 16;
+	private static final int QUANTILE_SAMPLE_SIZE = 1 << 16;
+	private static final int MAX_AUTO_BINS = 200;
+
+	private static ExecutorService sExecutor;
+
+	private final int mBinCount;
+	// Explicit edges, or null for fixed-width bins
+	private final double[] mEdges;
+	private double mMin;
+	private double mMax;
+	private double mWidth;
+	private final boolean mExpanding;
+
+	// mBinCount bins followed by the underflow and overflow counts
+	private final long[] mCounts;
+
+	private BarMatrix mMatrix;
+	private double[] mMatrixValues;
+	private boolean mEdgesChanged = true;
+
+	/**
+	 * Fixed-width bins over [min, max]. Samples outside the range are only
+	 * counted as underflow or overflow.
+	 */
+	public Histogram(double min, double max, int binCount) {
+		this(min, max, binCount, false);
+	}
+
+	/**
+	 * Explicit bin edges, ascending, one more than the number of bins.
+	 */
+	public Histogram(double[] edges) {
+		if (edges.length < 2) {
+			throw new IllegalArgumentException("At least two edges are required");
+		}
+		for (int i = 1; i < edges.length; i++) {
+			if (!(edges[i] > edges[i - 1])) {
+				throw new IllegalArgumentException("Edges must be strictly ascending");
+			}
+		}
+		mBinCount = edges.length - 1;
+		mEdges = edges.clone();
+		mMin = edges[0];
+		mExpanding = false;
+		mCounts = new long[mBinCount + 2];
+	}
+
+	private Histogram(double min, double max, int binCount, boolean expanding) {
+		if (binCount <= 0 || !(max > min)) {
+			throw new IllegalArgumentException("Invalid range [" + min + ", " + max + "] with " + binCount + " bins");
+		}
+		mBinCount = binCount;
+		mEdges = null;
+		mMin = min;
+		mMax = max;
+		mWidth = (max - min) / binCount;
+		mExpanding = expanding;
+		mCounts = new long[mBinCount + 2];
+	}
+
+	/**
+	 * Chooses bins for the samples with the Freedman-Diaconis rule and bins them.
+	 * Later samples outside the initial range widen it instead of overflowing.
+	 */
+	public static Histogram fromSamples(double[] samples) {
+		double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+		int finite = 0;
+		for (double v : samples) {
+			if (Double.isNaN(v) || Double.isInfinite(v)) continue;
+			if (v < min) min = v;
+			if (v > max) max = v;
+			finite++;
+		}
+		double[] quantileSample = new double[Math.min(finite, QUANTILE_SAMPLE_SIZE)];
+		int stride = Math.max(1, finite / Math.max(1, quantileSample.length));
+		int n = 0;
+		for (int i = 0, seen = 0; i < samples.length && n < quantileSample.length; i++) {
+			double v = samples[i];
+			if (Double.isNaN(v) || Double.isInfinite(v)) continue;
+			if (seen++ % stride == 0) quantileSample[n++] = v;
+		}
+		Histogram histogram = createAuto(min, max, finite, quantileSample, n);
+		histogram.addSamples(samples);
+		return histogram;
+	}
+
+	public static Histogram fromSamples(float[] samples) {
+		float min = Float.POSITIVE_INFINITY, max = Float.NEGATIVE_INFINITY;
+		int finite = 0;
+		for (float v : samples) {
+			if (Float.isNaN(v) || Float.isInfinite(v)) continue;
+			if (v < min) min = v;
+			if (v > max) max = v;
+			finite++;
+		}
+		double[] quantileSample = new double[Math.min(finite, QUANTILE_SAMPLE_SIZE)];
+		int stride = Math.max(1, finite / Math.max(1, quantileSample.length));
+		int n = 0;
+		for (int i = 0, seen = 0; i < samples.length && n < quantileSample.length; i++) {
+			float v = samples[i];
+			if (Float.isNaN(v) || Float.isInfinite(v)) continue;
+			if (seen++ % stride == 0) quantileSample[n++] = v;
+		}
+		Histogram histogram = createAuto(min, max, finite, quantileSample, n);
+		histogram.addSamples(samples);
+		return histogram;
+	}
+
+	private static Histogram createAuto(double min, double max, int count, double[] sample, int sampleSize) {
+		if (count == 0) {
+			min = 0;
+			max = 1;
+		} else if (max == min) {
+			min -= 0.5;
+			max += 0.5;
+		}
+
+		int bins = 0;
+		if (sampleSize >= 4) {
+			Arrays.sort(sample, 0, sampleSize);
+			double q1 = sample[(int) (0.25 * (sampleSize - 1))];
+			double q3 = sample[(int) (0.75 * (sampleSize - 1))];
+			double width = 2 * (q3 - q1) / Math.cbrt(count);
+			if (width > 0) {
+				bins = (int) Math.ceil((max - min) / width);
+			}
+		}
+		if (bins <= 0) {
+			// Sturges' rule when the interquartile range is degenerate
+			bins = (int) Math.ceil(Math.log(Math.max(count, 1)) / Math.log(2)) + 1;
+		}
+		bins = Math.max(2, Math.min(MAX_AUTO_BINS, bins));
+		// Widening merges bins in pairs, so keep the count even
+		if ((bins & 1) != 0) bins++;
+		return new Histogram(min, max, bins, true);
+	}
+
+	public void addSamples(double[] samples) {
+		addSamples(samples, 0, samples.length);
+	}
+
+	public void addSamples(float[] samples) {
+		addSamples(samples, 0, samples.length);
+	}
+
+	public synchronized void addSamples(double[] samples, int offset, int length) {
+		if (mExpanding) {
+			double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+			for (int i = offset; i < offset + length; i++) {
+				double v = samples[i];
+				if (Double.isInfinite(v)) continue;
+				if (v < min) min = v;
+				if (v > max) max = v;
+			}
+			expandToInclude(min, max);
+		}
+		bin(new BinTask(this, samples, null, offset, offset + length), length);
+		publish();
+	}
+
+	public synchronized void addSamples(float[] samples, int offset, int length) {
+		if (mExpanding) {
+			float min = Float.POSITIVE_INFINITY, max = Float.NEGATIVE_INFINITY;
+			for (int i = offset; i < offset + length; i++) {
+				float v = samples[i];
+				if (Float.isInfinite(v)) continue;
+				if (v < min) min = v;
+				if (v > max) max = v;
+			}
+			expandToInclude(min, max);
+		}
+		bin(new BinTask(this, null, samples, offset, offset + length), length);
+		publish();
+	}
+
+	public synchronized void clear() {
+		Arrays.fill(mCounts, 0);
+		publish();
+	}
+
+	public int getBinCount() {
+		return mBinCount;
+	}
+
+	public synchronized long getCount(int bin) {
+		return mCounts[bin];
+	}
+
+	public synchronized long getUnderflowCount() {
+		return mCounts[mBinCount];
+	}
+
+	public synchronized long getOverflowCount() {
+		return mCounts[mBinCount + 1];
+	}
+
+	public synchronized double getBinStart(int bin) {
+		return mEdges != null ? mEdges[bin] : mMin + mWidth * bin;
+	}
+
+	public synchronized double getBinEnd(int bin) {
+		return mEdges != null ? mEdges[bin + 1] : mMin + mWidth * (bin + 1);
+	}
+
+	/**
+	 * A single-series matrix holding the bin counts, kept up to date as samples
+	 * are added. Pass it to BarGraph.setBarMatrix().
+	 */
+	public synchronized BarMatrix getBarMatrix() {
+		if (mMatrix == null) {
+			mMatrix = new BarMatrix(1, mBinCount);
+			mMatrixValues = new double[mBinCount];
+			mEdgesChanged = true;
+			publish();
+		}
+		return mMatrix;
+	}
+
+	int indexOf(double v) {
+		if (mEdges != null) {
+			if (v < mEdges[0]) return mBinCount;
+			if (v > mEdges[mBinCount]) return mBinCount + 1;
+			int index = Arrays.binarySearch(mEdges, v);
+			// A sample on an edge belongs to the bin it starts, except the last edge
+			if (index < 0) index = -index - 2;
+			return Math.min(index, mBinCount - 1);
+		}
+		double position = (v - mMin) / mWidth;
+		if (position < 0) return mBinCount;
+		// The upper edge belongs to the last bin, even where rounding puts it past it
+		if (position >= mBinCount) return v <= mMax ? mBinCount - 1 : mBinCount + 1;
+		return (int) position;
+	}
+
+	private void expandToInclude(double min, double max) {
+		if (Double.isInfinite(min) || Double.isInfinite(max) || Double.isNaN(min) || Double.isNaN(max)) return;
+		while (max > mMax) {
+			mergeBins(false);
+		}
+		while (min < mMin) {
+			mergeBins(true);
+		}
+	}
+
+	// Doubles the bin width, keeping the lower edge (or the upper edge when
+	// growing downwards) fixed. Counts stay exact as each new bin is the union
+	// of two old ones.
+	private void mergeBins(boolean growDown) {
+		final int half = mBinCount / 2;
+		final long[] counts = mCounts;
+		if (growDown) {
+			for (int i = mBinCount - 1, j = mBinCount - 1; i >= half; i--, j -= 2) {
+				counts[i] = counts[j] + counts[j - 1];
+			}
+			Arrays.fill(counts, 0, half, 0);
+			mMin = mMax - 2 * mWidth * mBinCount;
+		} else {
+			for (int i = 0; i < half; i++) {
+				counts[i] = counts[2 * i] + counts[2 * i + 1];
+			}
+			Arrays.fill(counts, half, mBinCount, 0);
+			mMax = mMin + 2 * mWidth * mBinCount;
+		}
+		mWidth *= 2;
+		mEdgesChanged = true;
+	}
+
+	private void bin(BinTask task, int length) {
+		final int threads = Runtime.getRuntime().availableProcessors();
+		if (length < PARALLEL_THRESHOLD || threads < 2) {
+			task.binInto(mCounts);
+			return;
+		}
+
+		ExecutorService executor = getExecutor(threads);
+		ArrayList<Future<long[]>> parts = new ArrayList<Future<long[]>>(threads);
+		final int chunk = (length + threads - 1) / threads;
+		for (int from = task.mFrom; from < task.mTo; from += chunk) {
+			parts.add(executor.submit(task.slice(from, Math.min(task.mTo, from + chunk))));
+		}
+		try {
+			for (Future<long[]> part : parts) {
+				long[] counts = part.get();
+				for (int i = 0; i < counts.length; i++) {
+					mCounts[i] += counts[i];
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while binning samples", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Binning samples failed", e.getCause());
+		}
+	}
+
+	private static synchronized ExecutorService getExecutor(int threads) {
+		if (sExecutor == null) {
+			sExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "Histogram binning");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return sExecutor;
+	}
+
+	// The new names and values are prepared first and then swapped in under
+	// the matrix's lock, which BarGraph holds while it reads the matrix, so a
+	// draw never sees half an update
+	private void publish() {
+		if (mMatrix == null) return;
+		String[] names = null;
+		if (mEdgesChanged) {
+			names = new String[mBinCount];
+			for (int i = 0; i < mBinCount; i++) {
+				names[i] = String.valueOf((float) getBinStart(i));
+			}
+			mEdgesChanged = false;
+		}
+		for (int i = 0; i < mBinCount; i++) {
+			mMatrixValues[i] = mCounts[i];
+		}
+		synchronized (mMatrix) {
+			if (names != null) {
+				mMatrix.setCategoryNames(names);
+			}
+			mMatrix.setSeriesValues(0, mMatrixValues);
+		}
+	}
+
+	// Bins one slice of a double[] or float[] batch into its own counts
+	private static final class BinTask implements Callable<long[]> {
+		final Histogram mHistogram;
+		final double[] mDoubles;
+		final float[] mFloats;
+		final int mFrom;
+		final int mTo;
+
+		BinTask(Histogram histogram, double[] doubles, float[] floats, int from, int to) {
+			mHistogram = histogram;
+			mDoubles = doubles;
+			mFloats = floats;
+			mFrom = from;
+			mTo = to;
+		}
+
+		BinTask slice(int from, int to) {
+			return new BinTask(mHistogram, mDoubles, mFloats, from, to);
+		}
+
+		void binInto(long[] counts) {
+			final Histogram histogram = mHistogram;
+			if (mDoubles != null) {
+				final double[] samples = mDoubles;
+				for (int i = mFrom; i < mTo; i++) {
+					double v = samples[i];
+					if (v == v) counts[histogram.indexOf(v)]++;
+				}
+			} else {
+				final float[] samples = mFloats;
+				for (int i = mFrom; i < mTo; i++) {
+					float v = samples[i];
+					if (v == v) counts[histogram.indexOf(v)]++;
+				}
+			}
+		}
+
+		@Override
+		public long[] call() {
+			long[] counts = new long[mHistogram.mBinCount + 2];
+			binInto(counts);
+			return counts;
+		}
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+
+package com.echo.holographlibrary;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.graphics.Bitmap;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+/**
+ * Bounded LRU cache of measured label text and of pre-rendered value popups,
+ * so redrawing a graph whose labels did not change does no text measurement.
+ */
+class LabelCache {
+
+	private static final int MAX_LAYOUTS = 512;
+	private static final int MAX_POPUPS = 128;
+
+	static final class Layout {
+		float width;
+		final Rect firstCharBounds = new Rect();
+	}
+
+	private static final class Key {
+		String text;
+		float textSize;
+		Typeface typeface;
+		int width;
+		int height;
+
+		Key set(String text, float textSize, Typeface typeface, int width, int height) {
+			this.text = text;
+			this.textSize = textSize;
+			this.typeface = typeface;
+			this.width = width;
+			this.height = height;
+			return this;
+		}
+
+		Key copy() {
+			return new Key().set(text, textSize, typeface, width, height);
+		}
+
+		@Override
+		public int hashCode() {
+			int h = text.hashCode();
+			h = 31 * h + Float.floatToIntBits(textSize);
+			h = 31 * h + (typeface != null ? typeface.hashCode() : 0);
+			h = 31 * h + width;
+			return 31 * h + height;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) return false;
+			Key k = (Key) o;
+			return textSize == k.textSize && typeface == k.typeface
+					&& width == k.width && height == k.height && text.equals(k.text);
+		}
+	}
+
+	private final Key mProbe = new Key();
+	private long mPopupBytes = 0;
+
+	private final LinkedHashMap<Key, Layout> mLayouts = new LinkedHashMap<Key, Layout>(64, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Layout> eldest) {
+			return size() > MAX_LAYOUTS;
+		}
+	};
+
+	private final LinkedHashMap<Key, Bitmap> mPopups = new LinkedHashMap<Key, Bitmap>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Bitmap> eldest) {
+			if (size() > MAX_POPUPS) {
+				mPopupBytes -= popupBytes(eldest.getKey().width, eldest.getKey().height);
+				eldest.getValue().recycle();
+				return true;
+			}
+			return false;
+		}
+	};
+
+	Layout getLayout(Paint paint, String text) {
+		Key key = mProbe.set(text, paint.getTextSize(), paint.getTypeface(), 0, 0);
+		Layout layout = mLayouts.get(key);
+		if (layout == null) {
+			layout = new Layout();
+			layout.width = paint.measureText(text);
+			if (text.length() > 0) {
+				paint.getTextBounds(text, 0, 1, layout.firstCharBounds);
+			}
+			mLayouts.put(key.copy(), layout);
+		}
+		return layout;
+	}
+
+	Bitmap getPopup(Paint paint, String text, int width, int height) {
+		Bitmap popup = mPopups.get(mProbe.set(text, paint.getTextSize(), paint.getTypeface(), width, height));
+		if (popup != null && popup.isRecycled()) {
+			mPopups.remove(mProbe);
+			mPopupBytes -= popupBytes(width, height);
+			return null;
+		}
+		return popup;
+	}
+
+	void putPopup(Paint paint, String text, int width, int height, Bitmap popup) {
+		Bitmap previous = mPopups.put(new Key().set(text, paint.getTextSize(), paint.getTypeface(), width, height), popup);
+		if (previous == null) {
+			mPopupBytes += popupBytes(width, height);
+		}
+	}
+
+	private static long popupBytes(int width, int height) {
+		return 4L * width * height;
+	}
+
+	// Rough estimate: popups by their pixels, layouts by a fixed entry size
+	long getByteCount() {
+		return mPopupBytes + mLayouts.size() * 96L;
+	}
+
+	void clear() {
+		mLayouts.clear();
+		for (Bitmap popup : mPopups.values()) {
+			popup.recycle();
+		}
+		mPopups.clear();
+		mPopupBytes = 0;
+	}
+}
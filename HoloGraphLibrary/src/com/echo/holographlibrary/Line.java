@@ -27,8 +27,15 @@ import java.util.ArrayList;
 
 public class Line {
 	private ArrayList<LinePoint> points = new ArrayList<LinePoint>();
+	private final ArrayList<LinePoint> sparePoints = new ArrayList<LinePoint>();
 	private int color;
 	private boolean showPoints = true;
+	private CompressedSeries series;
+	private TimeSeries timeSeries;
+	private boolean visible = true;
+	private int zOrder = 0;
+	private int version = 0;
+	LineLayer layer;
 	
 	
 	public int getColor() {
@@ -36,15 +43,41 @@ public class Line {
 	}
 	public void setColor(int color) {
 		this.color = color;
+		version++;
 	}
 	public ArrayList<LinePoint> getPoints() {
 		return points;
 	}
 	public void setPoints(ArrayList<LinePoint> points) {
 		this.points = points;
+		version++;
+	}
+	/**
+	 * Replaces the points with the first count values of xs and ys, reusing the
+	 * existing LinePoint objects and their hit geometry. Points no longer needed
+	 * are kept aside for the next call.
+	 */
+	public void setPoints(float[] xs, float[] ys, int count){
+		while (points.size() > count){
+			sparePoints.add(points.remove(points.size()-1));
+		}
+		points.ensureCapacity(count);
+		for (int i = 0; i < count; i++){
+			LinePoint point;
+			if (i < points.size()){
+				point = points.get(i);
+			} else {
+				point = sparePoints.isEmpty() ? new LinePoint() : sparePoints.remove(sparePoints.size()-1);
+				points.add(point);
+			}
+			point.setX(xs[i]);
+			point.setY(ys[i]);
+		}
+		version++;
 	}
 	public void addPoint(LinePoint point){
 		points.add(point);
+		version++;
 	}
 	public LinePoint getPoint(int index){
 		return points.get(index);
@@ -52,11 +85,58 @@ public class Line {
 	public int getSize(){
 		return points.size();
 	}
+	public CompressedSeries getSeries() {
+		return series;
+	}
+	/**
+	 * Draws the line from a compressed series instead of its points. Such a
+	 * line has no point markers and is not reported by point clicks.
+	 */
+	public void setSeries(CompressedSeries series) {
+		this.series = series;
+		version++;
+	}
+	public TimeSeries getTimeSeries() {
+		return timeSeries;
+	}
+	/**
+	 * Draws the line from a time series instead of its points, placed on the
+	 * graph's time axis. Like a compressed series it has no point markers.
+	 */
+	public void setTimeSeries(TimeSeries timeSeries) {
+		this.timeSeries = timeSeries;
+		version++;
+	}
 	public boolean isShowingPoints() {
 		return showPoints;
 	}
 	public void setShowingPoints(boolean showPoints) {
 		this.showPoints = showPoints;
+		version++;
+	}
+	public boolean isVisible() {
+		return visible;
+	}
+	/**
+	 * A hidden line is not drawn or touchable but still counts towards the
+	 * graph's bounds, so toggling it leaves the other lines in place.
+	 */
+	public void setVisible(boolean visible) {
+		this.visible = visible;
+	}
+	public int getZOrder() {
+		return zOrder;
+	}
+	/** Lines with a higher z-order are drawn over those with a lower one. */
+	public void setZOrder(int zOrder) {
+		this.zOrder = zOrder;
+	}
+	// Bumped by every change to what the line draws, so cached layers know to redraw
+	int getVersion() {
+		return version;
+	}
+	void changed() {
+		version++;
 	}
 	
 }
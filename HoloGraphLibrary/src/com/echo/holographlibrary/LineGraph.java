@@ -40,6 +40,7 @@ import android.graphics.Point;
 import android.graphics.Path.Direction;
 import android.graphics.PixelFormat;
 import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
 import android.graphics.Region;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
@@ -54,43 +55,233 @@ public class LineGraph extends View {
 	private float minY = 0, minX = 0;
 	private float maxY = 0, maxX = 0;
 	private boolean isMaxYUserSet = false;
+	private boolean isRangeXUserSet = false;
+	private long timeBase = 0;
+	private boolean isTimeRangeSet = false;
+	private long timeFrom, timeTo;
+	private long liveWindow = 0;
+	private final PolylineBuffer polyline = new PolylineBuffer();
+	private int renderMode = MODE_LINES;
+	private final DensityRenderer densityRenderer = new DensityRenderer();
+	private final ScatterRenderer scatterRenderer = new ScatterRenderer();
+	private float scatterPointSize = 6;
+	private float markerSpacing = 20;
+	private StackedSeries stackedSeries;
+	private float[] stackX = new float[0];
+	private float[] stackLower = new float[0];
+	private float[] stackUpper = new float[0];
+	private static Bitmap markerSprite;
+	private final PixelMapping pixelMapping = new PixelMapping();
+	private final Bounds bounds = new Bounds();
+	private long layerMemoryLimit = 0;
+	private long layerBytes = 0;
+	private boolean imageLayered = false;
+	private int layerGeneration = 0;
+	private int[] drawOrder = new int[0];
+	private int drawCount = 0;
+	private Line drawnFillLine;
+	private int drawnFillVersion = -1;
+	private long drawnVersions = -1;
+	private boolean scrubEnabled = false;
+	private boolean scrubbing = false;
+	private float scrubX;
+	private float scrubTextSize;
+	private int[] scrubIndices = new int[0];
+	private double[] scrubValues = new double[0];
+	private float[] scrubPoints = new float[0];
+	private final Paint overlayPaint = new Paint();
+	private final StringBuilder scrubLabel = new StringBuilder();
+	private OnScrubListener scrubListener;
+	
+	public static final int MODE_LINES = 0;
+	public static final int MODE_DENSITY = 1;
+	public static final int MODE_SCATTER = 2;
 	private int lineToFill = -1;
 	private int indexSelected = -1;
 	private OnPointClickedListener listener;
 	private Bitmap fullImage;
+	private final Canvas imageCanvas = new Canvas();
+	private final Path fillPath = new Path();
+	private final Path segmentPath = new Path();
+	private float[] vertexBuffer = new float[0];
+	private long[] seriesX = new long[0];
+	private float[] seriesY = new float[0];
+	private final ArrayList<Line> spareLines = new ArrayList<Line>();
+	private int preferredWidth = 0, preferredHeight = 0;
 	private boolean shouldUpdate = false;
+	private boolean scheduledRendering = false;
+	private boolean deferredUpdate = false;
+	private int imageBackground = Color.TRANSPARENT;
+	private final Rect visibleRect = new Rect();
+	
+	private static final PorterDuffXfermode CLEAR_MODE = new PorterDuffXfermode(android.graphics.PorterDuff.Mode.CLEAR);
 	
 	public LineGraph(Context context){
 		super(context);
+		GraphMemoryManager.getInstance().register(context);
 	}
 	
 	public LineGraph(Context context, AttributeSet attrs) {
 		super(context, attrs);
+		GraphMemoryManager.getInstance().register(context);
+	}
+	
+	/**
+	 * Colour the graph image is filled with before drawing. A fully opaque
+	 * colour lets the image use RGB_565, half the memory of the default
+	 * transparent ARGB_8888 image.
+	 */
+	public void setImageBackground(int color) {
+		imageBackground = color;
+		update();
+	}
+	
+	@Override
+	public boolean isOpaque() {
+		return Color.alpha(imageBackground) == 255;
+	}
+	
+	private final GraphMemoryManager.Client memoryClient = new GraphMemoryManager.Client() {
+		@Override
+		boolean isVisible() {
+			return isShown() && getGlobalVisibleRect(visibleRect);
+		}
+		
+		@Override
+		void releaseCaches() {
+			LineGraph.this.releaseCaches();
+			invalidate();
+		}
+	};
+	
+	// Everything here is rebuilt by the next draw
+	private void releaseCaches() {
+		GraphMemoryManager.release(fullImage, imageCanvas);
+		fullImage = null;
+		vertexBuffer = new float[0];
+		densityRenderer.release();
+		scatterRenderer.release();
+		releaseLayers();
+		stackX = new float[0];
+		stackLower = new float[0];
+		stackUpper = new float[0];
+	}
+	/**
+	 * Leaves rebuilding the graph image after a change to the shared
+	 * {@link RenderScheduler} instead of doing it in the next draw. The previous
+	 * image stays on screen until the scheduler gets to this graph.
+	 */
+	public void setScheduledRendering(boolean scheduled) {
+		scheduledRendering = scheduled;
+		if (!scheduled) {
+			RenderScheduler.getInstance().cancel(renderTask);
+			deferredUpdate = false;
+		}
+		postInvalidate();
+	}
+	
+	private void update() {
+		shouldUpdate = true;
+		deferredUpdate = scheduledRendering;
+		if (scheduledRendering) {
+			RenderScheduler.getInstance().schedule(renderTask);
+		} else {
+			postInvalidate();
+		}
 	}
+	
+	private final RenderScheduler.Task renderTask = new RenderScheduler.Task() {
+		@Override
+		boolean isVisible() {
+			return isShown() && getGlobalVisibleRect(visibleRect);
+		}
+		
+		@Override
+		void rebuild() {
+			if (!shouldUpdate || getWidth() <= 0 || getHeight() <= 0) return;
+			drawGraph();
+			shouldUpdate = false;
+			deferredUpdate = false;
+			invalidate();
+		}
+	};
+	
 	public void setMinY(float minY){
 		
 	}
 	
 	public void removeAllLines(){
-		while (lines.size() > 0){
-			lines.remove(0);
+		releaseLayers();
+		lines.clear();
+		update();
+	}
+	
+	/**
+	 * Rebinds the graph to new data, typically from a list adapter recycling the
+	 * view. The points of line index are replaced in place, so the Line and
+	 * LinePoint objects, the image and the vertex buffer are all reused. Missing
+	 * lines are taken from those dropped by setLineCount() before new ones are made.
+	 */
+	public Line rebindLine(int index, float[] xs, float[] ys, int count){
+		while (lines.size() <= index){
+			lines.add(spareLines.isEmpty() ? new Line() : spareLines.remove(spareLines.size()-1));
 		}
-		shouldUpdate = true;
-		postInvalidate();
+		Line line = lines.get(index);
+		line.setPoints(xs, ys, count);
+		ensureVertexCapacity(count);
+		indexSelected = -1;
+		update();
+		return line;
+	}
+	
+	/** Drops the lines past count, keeping them for later rebindLine() calls. */
+	public void setLineCount(int count){
+		while (lines.size() > count){
+			Line line = lines.remove(lines.size()-1);
+			if (line.layer != null) line.layer.release();
+			spareLines.add(line);
+		}
+		update();
+	}
+	
+	/**
+	 * Size the graph asks for when its layout size is not fixed, with the number
+	 * of points per line it is expected to show, so buffers are sized up front.
+	 */
+	public void setPreferredSize(int width, int height, int pointsPerLine){
+		preferredWidth = width;
+		preferredHeight = height;
+		ensureVertexCapacity(pointsPerLine);
+		requestLayout();
+	}
+	
+	private void ensureVertexCapacity(int points){
+		int floats = Math.max(0, points - 1) * 4;
+		if (vertexBuffer.length < floats){
+			vertexBuffer = new float[floats];
+		}
+	}
+	
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec){
+		if (preferredWidth <= 0 || preferredHeight <= 0){
+			super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+			return;
+		}
+		setMeasuredDimension(resolveSize(preferredWidth, widthMeasureSpec),
+				resolveSize(preferredHeight, heightMeasureSpec));
 	}
 	
 	public void addLine(Line line) {
 		lines.add(line);
-		shouldUpdate = true;
-		postInvalidate();
+		update();
 	}
 	public ArrayList<Line> getLines() {
 		return lines;
 	}
 	public void setLineToFill(int indexOfLine) {
 		this.lineToFill = indexOfLine;
-		shouldUpdate = true;
-		postInvalidate();
+		update();
 	}
 	public int getLineToFill(){
 		return lineToFill;
@@ -110,232 +301,1064 @@ public class LineGraph extends View {
 		maxY = max;
 		isMaxYUserSet = true;
 	}
-	public float getMaxY(){
-		if (isMaxYUserSet){
-			return maxY;
+	/**
+	 * Shows only the given x range. Lines backed by a CompressedSeries decode
+	 * just the blocks inside it.
+	 */
+	public void setRangeX(float min, float max) {
+		minX = min;
+		maxX = max;
+		isRangeXUserSet = true;
+		update();
+	}
+	public void clearRangeX() {
+		isRangeXUserSet = false;
+		update();
+	}
+	
+	/**
+	 * Shows the time range from fromTime to toTime, in milliseconds. Lines
+	 * backed by a TimeSeries only visit the samples inside it. The x values of
+	 * other lines are read as milliseconds after fromTime.
+	 */
+	public void setTimeRange(long fromTime, long toTime) {
+		timeFrom = fromTime;
+		timeTo = toTime;
+		isTimeRangeSet = true;
+		liveWindow = 0;
+		update();
+	}
+	
+	/**
+	 * Shows the last durationMillis of the time series lines, following their
+	 * latest sample on every redraw. 0 turns the live window off.
+	 */
+	public void setLiveWindow(long durationMillis) {
+		liveWindow = durationMillis;
+		isTimeRangeSet = false;
+		update();
+	}
+	
+	/**
+	 * MODE_LINES draws every line with its points. MODE_DENSITY draws how many
+	 * lines cross each pixel as a colour map instead, which stays readable and
+	 * fast with hundreds of overlapping lines; points are then neither drawn
+	 * nor clickable. MODE_SCATTER draws the points unconnected as dots, which
+	 * scales to hundreds of thousands of points; the nearest point is reported
+	 * on click.
+	 */
+	public void setRenderMode(int mode) {
+		if (mode != MODE_LINES && mode != MODE_DENSITY && mode != MODE_SCATTER) {
+			throw new IllegalArgumentException("Unknown render mode " + mode);
+		}
+		renderMode = mode;
+		update();
+	}
+	
+	public int getRenderMode() {
+		return renderMode;
+	}
+	
+	/** Diameter in pixels of the dots drawn in MODE_SCATTER. */
+	public void setScatterPointSize(float size) {
+		scatterPointSize = size;
+		update();
+	}
+	
+	/**
+	 * Closest two point markers of a line may be drawn, in pixels. Thinning
+	 * markers that would overlap keeps dense lines readable and cheap to draw;
+	 * 0 draws a marker on every point.
+	 */
+	public void setMarkerSpacing(float pixels) {
+		markerSpacing = pixels;
+		update();
+	}
+	
+	/** Colour stops of the density map, from the lowest to the highest density. */
+	public void setDensityColors(int[] colors) {
+		densityRenderer.setColors(colors);
+		update();
+	}
+	
+	/**
+	 * While enabled, dragging across the graph moves a crosshair to the point
+	 * nearest the finger on every line, and points are no longer clicked. The
+	 * points of every line must be in ascending x order.
+	 */
+	public void setScrubEnabled(boolean enabled) {
+		scrubEnabled = enabled;
+		scrubTextSize = 12 * getResources().getDisplayMetrics().scaledDensity;
+		if (!enabled) endScrub();
+	}
+	
+	public boolean isScrubEnabled() {
+		return scrubEnabled;
+	}
+	
+	public void setOnScrubListener(OnScrubListener listener) {
+		scrubListener = listener;
+	}
+	
+	/**
+	 * Rebuilds the graph after its lines' data changed in place, for example
+	 * after appending to a time series. Safe to call from any thread.
+	 */
+	public void notifyDataChanged() {
+		update();
+	}
+	
+	/**
+	 * Draws the series as stacked bands under the lines, each band filled
+	 * between the total of the series below and its own. The bands share the
+	 * graph's bounds with the lines. Call notifyDataChanged() after appending
+	 * to or changing the series.
+	 */
+	public void setStackedSeries(StackedSeries series) {
+		stackedSeries = series;
+		update();
+	}
+	
+	public StackedSeries getStackedSeries() {
+		return stackedSeries;
+	}
+	
+	/**
+	 * Lets the graph cache every visible line in a layer of its own while all
+	 * of them fit in bytes. Showing, hiding or reordering a line then only
+	 * composites the layers again, and notifyLineChanged() redraws a single
+	 * layer. 0, the default, draws every line into the one graph image.
+	 */
+	public void setLayerMemoryLimit(long bytes) {
+		layerMemoryLimit = bytes;
+		update();
+	}
+	
+	public void setLineVisible(int index, boolean visible) {
+		lines.get(index).setVisible(visible);
+		layersChanged();
+	}
+	
+	public void setLineZOrder(int index, int zOrder) {
+		lines.get(index).setZOrder(zOrder);
+		layersChanged();
+	}
+	
+	/** Redraws line index after its points, series or colour were changed in place. */
+	public void notifyLineChanged(int index) {
+		lines.get(index).changed();
+		layersChanged();
+	}
+	
+	private void layersChanged() {
+		if (imageLayered) {
+			invalidate();
 		} else {
-			maxY = lines.get(0).getPoint(0).getY();
-			for (Line line : lines){
-				for (LinePoint point : line.getPoints()){
-					if (point.getY() > maxY){
-						maxY = point.getY();
-					}
-				}
+			update();
+		}
+	}
+	
+	public void clearTimeRange() {
+		isTimeRangeSet = false;
+		liveWindow = 0;
+		update();
+	}
+	
+	/**
+	 * Timestamp at x = 0. Time series lines are drawn relative to it so their
+	 * timestamps never pass through a float.
+	 */
+	public long getTimeBase() {
+		computeBounds();
+		return timeBase;
+	}
+	
+	// Picks the time base; returns true when the time settings fix the x range
+	private boolean updateTimeBase(){
+		if (isTimeRangeSet){
+			timeBase = timeFrom;
+			minX = 0;
+			maxX = timeTo - timeFrom;
+			return true;
+		}
+		long first = Long.MAX_VALUE, last = Long.MIN_VALUE;
+		for (int i = 0; i < lines.size(); i++){
+			TimeSeries series = lines.get(i).getTimeSeries();
+			if (series == null) continue;
+			synchronized (series){
+				if (series.size() == 0) continue;
+				first = Math.min(first, series.getTime(0));
+				last = Math.max(last, series.getTime(series.size() - 1));
 			}
-			return maxY;
 		}
-		
+		if (first > last) return false;
+		if (liveWindow > 0){
+			timeBase = last - liveWindow;
+			minX = 0;
+			maxX = liveWindow;
+			return true;
+		}
+		timeBase = first;
+		return false;
+	}
+	public float getMaxY(){
+		if (!isMaxYUserSet){
+			computeBounds();
+		}
+		return maxY;
 	}
 	public float getMinY(){
-		if (isMaxYUserSet){
-			return minY;
-		} else {
-			float min = lines.get(0).getPoint(0).getY();
-			for (Line line : lines){
-				for (LinePoint point : line.getPoints()){
-					if (point.getY() < min) min = point.getY();
-				}
-			}
-			minY = min;
-			return minY;
+		if (!isMaxYUserSet){
+			computeBounds();
 		}
+		return minY;
 	}
 	public float getMaxX(){
-		float max = lines.get(0).getPoint(0).getX();
-		for (Line line : lines){
-			for (LinePoint point : line.getPoints()){
-				if (point.getX() > max) max = point.getX();
+		computeBounds();
+		return maxX;
+	}
+	public float getMinX(){
+		computeBounds();
+		return minX;
+	}
+	
+	// One pass over every point for all four bounds; bounds set through
+	// setRangeX and setRangeY are left alone. Compressed series only
+	// contribute their block headers, and time series only their samples
+	// inside a fixed time range.
+	private void computeBounds(){
+		final boolean fixedX = updateTimeBase() || isRangeXUserSet;
+		final Bounds bounds = this.bounds;
+		bounds.reset();
+		final StackedSeries stack = stackedSeries;
+		if (stack != null){
+			synchronized (stack){
+				if (stack.size() > 0){
+					bounds.include(stack.getX(0), stack.getMinY());
+					bounds.include(stack.getX(stack.size() - 1), stack.getMaxY());
+				}
 			}
 		}
-		maxX = max;
-		return maxX;
+		for (int i = 0; i < lines.size(); i++){
+			TimeSeries timeSeries = lines.get(i).getTimeSeries();
+			if (timeSeries != null){
+				synchronized (timeSeries){
+					int from = 0, to = timeSeries.size();
+					if (fixedX){
+						from = timeSeries.lowerBound(timeBase + (long) Math.floor(this.minX));
+						to = timeSeries.upperBound(timeBase + (long) Math.ceil(this.maxX));
+					}
+					bounds.include(timeSeries, timeBase, from, to);
+				}
+				continue;
+			}
+			CompressedSeries series = lines.get(i).getSeries();
+			if (series != null){
+				synchronized (series){
+					bounds.include(series);
+				}
+				continue;
+			}
+			ArrayList<LinePoint> points = lines.get(i).getPoints();
+			for (int j = 0; j < points.size(); j++){
+				LinePoint point = points.get(j);
+				bounds.include(point.getX(), point.getY());
+			}
+		}
+		if (bounds.empty) return;
 		
+		if (!fixedX){
+			this.minX = bounds.minX;
+			this.maxX = bounds.maxX;
+		}
+		if (!isMaxYUserSet){
+			this.minY = bounds.minY;
+			this.maxY = bounds.maxY;
+		}
 	}
-	public float getMinX(){
-		float max = lines.get(0).getPoint(0).getX();
-		for (Line line : lines){
-			for (LinePoint point : line.getPoints()){
-				if (point.getX() < max) max = point.getX();
+	
+	private void prepareImage() {
+		Config config = isOpaque() ? Config.RGB_565 : Config.ARGB_8888;
+		if (fullImage == null || fullImage.isRecycled() || fullImage.getConfig() != config
+				|| fullImage.getWidth() != getWidth() || fullImage.getHeight() != getHeight()) {
+			GraphMemoryManager.release(fullImage, imageCanvas);
+			fullImage = Bitmap.createBitmap(getWidth(), getHeight(), config);
+			imageCanvas.setBitmap(fullImage);
+			if (isOpaque()) fullImage.eraseColor(imageBackground);
+		} else {
+			fullImage.eraseColor(imageBackground);
+		}
+	}
+	
+	private void drawBaseline(Canvas canvas, float sidePadding, float bottomPadding) {
+		paint.reset();
+		
+		paint.setColor(Color.BLACK);
+		paint.setAlpha(50);
+		paint.setAntiAlias(true);
+		canvas.drawLine(sidePadding, getHeight() - bottomPadding, getWidth()-sidePadding, getHeight()-bottomPadding, paint);
+		paint.setAlpha(255);
+	}
+	
+	void drawGraph() {
+		prepareImage();
+		Canvas canvas = imageCanvas;
+		
+		float bottomPadding = 10, topPadding = 10;
+		float sidePadding = 10;
+		float usableHeight = getHeight() - bottomPadding - topPadding;
+		float usableWidth = getWidth() - 2*sidePadding;
+		
+		computeBounds();
+		PixelMapping mapping = pixelMapping;
+		mapping.minX = minX;
+		mapping.maxX = maxX;
+		mapping.minY = minY;
+		mapping.maxY = maxY;
+		mapping.timeBase = timeBase;
+		mapping.left = sidePadding;
+		mapping.bottom = getHeight() - bottomPadding;
+		mapping.usableWidth = usableWidth;
+		mapping.usableHeight = usableHeight;
+		
+		imageLayered = false;
+		if (renderMode != MODE_LINES){
+			releaseLayers();
+			if (renderMode == MODE_DENSITY){
+				densityRenderer.render(lines, fullImage, imageBackground, mapping);
+			} else {
+				paint.reset();
+				paint.setAntiAlias(true);
+				paint.setStrokeWidth(scatterPointSize);
+				paint.setStrokeCap(Paint.Cap.ROUND);
+				scatterRenderer.render(lines, canvas, paint, getWidth(), getHeight(), mapping);
 			}
+			drawBaseline(canvas, sidePadding, bottomPadding);
+			return;
+		}
+		
+		drawBase();
+		drawnVersions = getVersionSum();
+		
+		if (useLayers()){
+			// Every layer depends on the mapping just computed
+			imageLayered = true;
+			layerGeneration++;
+			updateLayers();
+			return;
+		}
+		releaseLayers();
+		
+		sortDrawOrder();
+		for (int i = 0; i < drawCount; i++){
+			drawLine(canvas, lines.get(drawOrder[i]));
+		}
+		for (int i = 0; i < drawCount; i++){
+			drawMarkers(canvas, lines.get(drawOrder[i]));
 		}
-		maxX = max;
-		return maxX;
 	}
 	
-	public void onDraw(Canvas ca) {
-		if (fullImage == null || shouldUpdate) {
-			fullImage = Bitmap.createBitmap(getWidth(), getHeight(), Config.ARGB_8888);
-			Canvas canvas = new Canvas(fullImage);
+	private Line getFillLine() {
+		return lineToFill >= 0 && lineToFill < lines.size() ? lines.get(lineToFill) : null;
+	}
+	
+	// The fill under lineToFill and the baseline, which sit below every line
+	private void drawBase() {
+		final Canvas canvas = imageCanvas;
+		final float sidePadding = pixelMapping.left;
+		final float bottomPadding = getHeight() - pixelMapping.bottom;
+		final float usableHeight = pixelMapping.usableHeight;
+		final float usableWidth = pixelMapping.usableWidth;
+		final float minX = pixelMapping.minX, maxX = pixelMapping.maxX;
+		final float minY = pixelMapping.minY, maxY = pixelMapping.maxY;
+		
+		paint.reset();
+		Path path = fillPath;
+		path.reset();
+		
+		Line line = getFillLine();
+		drawnFillLine = line;
+		drawnFillVersion = line != null && line.isVisible() ? line.getVersion() : -1;
+		if (line != null && line.isVisible()){
+			int count = 0;
+			float firstXPixels = 0, lastXPixels = 0, newYPixels = 0;
+			float lastYPixels = 0, newXPixels = 0;
+			
+			paint.setColor(Color.BLACK);
+			paint.setAlpha(30);
+			paint.setStrokeWidth(2);
+			for (int i = 10; i-getWidth() < getHeight(); i = i+20){
+				canvas.drawLine(i, getHeight()-bottomPadding, 0, getHeight()-bottomPadding-i, paint);
+			}
 			
 			paint.reset();
-			Path path = new Path();
 			
-			float bottomPadding = 10, topPadding = 10;
-			float sidePadding = 10;
-			float usableHeight = getHeight() - bottomPadding - topPadding;
-			float usableWidth = getWidth() - 2*sidePadding;
+			// An opaque image has no alpha to clear, so it is painted with the background instead
+			if (isOpaque()){
+				paint.setColor(imageBackground);
+			} else {
+				paint.setXfermode(CLEAR_MODE);
+			}
+			for (LinePoint p : line.getPoints()){
+				float yPercent = (p.getY()-minY)/(maxY - minY);
+				float xPercent = (p.getX()-minX)/(maxX - minX);
+				if (count == 0){
+					lastXPixels = sidePadding + (xPercent*usableWidth);
+					lastYPixels = getHeight() - bottomPadding - (usableHeight*yPercent);
+					firstXPixels = lastXPixels;
+					path.moveTo(lastXPixels, lastYPixels);
+				} else {
+					newXPixels = sidePadding + (xPercent*usableWidth);
+					newYPixels = getHeight() - bottomPadding - (usableHeight*yPercent);
+					path.lineTo(newXPixels, newYPixels);
+					Path pa = segmentPath;
+					pa.reset();
+					pa.moveTo(lastXPixels, lastYPixels);
+					pa.lineTo(newXPixels, newYPixels);
+					pa.lineTo(newXPixels, 0);
+					pa.lineTo(lastXPixels, 0);
+					pa.close();
+					canvas.drawPath(pa, paint);
+					lastXPixels = newXPixels;
+					lastYPixels = newYPixels;
+				}
+				count++;
+			}
 			
-			int lineCount = 0;
-			for (Line line : lines){
-				int count = 0;
-				float firstXPixels = 0, lastXPixels = 0, newYPixels = 0;
-				float lastYPixels = 0, newXPixels = 0;
-				float maxY = getMaxY();
-				float minY = getMinY();
-				float maxX = getMaxX();
-				float minX = getMinX();
-				
-				if (lineCount == lineToFill){
-					paint.setColor(Color.BLACK);
-					paint.setAlpha(30);
-					paint.setStrokeWidth(2);
-					for (int i = 10; i-getWidth() < getHeight(); i = i+20){
-						canvas.drawLine(i, getHeight()-bottomPadding, 0, getHeight()-bottomPadding-i, paint);
-					}
-					
-					paint.reset();
-					
-					paint.setXfermode(new PorterDuffXfermode(android.graphics.PorterDuff.Mode.CLEAR));
-					for (LinePoint p : line.getPoints()){
-						float yPercent = (p.getY()-minY)/(maxY - minY);
-						float xPercent = (p.getX()-minX)/(maxX - minX);
-						if (count == 0){
-							lastXPixels = sidePadding + (xPercent*usableWidth);
-							lastYPixels = getHeight() - bottomPadding - (usableHeight*yPercent);
-							firstXPixels = lastXPixels;
-							path.moveTo(lastXPixels, lastYPixels);
+			path.reset();
+			
+			path.moveTo(0, getHeight()-bottomPadding);
+			path.lineTo(sidePadding, getHeight()-bottomPadding);
+			path.lineTo(sidePadding, 0);
+			path.lineTo(0, 0);
+			path.close();
+			canvas.drawPath(path, paint);
+			
+			path.reset();
+			
+			path.moveTo(getWidth(), getHeight()-bottomPadding);
+			path.lineTo(getWidth()-sidePadding, getHeight()-bottomPadding);
+			path.lineTo(getWidth()-sidePadding, 0);
+			path.lineTo(getWidth(), 0);
+			path.close();
+			
+			canvas.drawPath(path, paint);
+		}
+		
+		if (stackedSeries != null){
+			drawStackedSeries(canvas, stackedSeries);
+		}
+		drawBaseline(canvas, sidePadding, bottomPadding);
+	}
+	
+	// One path per band, walking its top edge forward and the top edge of the
+	// band below back. Each top edge is projected once and kept as the bottom
+	// edge of the next band.
+	private void drawStackedSeries(Canvas canvas, StackedSeries stack) {
+		final PixelMapping mapping = pixelMapping;
+		final double scaleX = mapping.scaleX();
+		final double scaleY = mapping.scaleY();
+		final Path path = fillPath;
+		
+		paint.reset();
+		paint.setAntiAlias(true);
+		canvas.save();
+		canvas.clipRect(mapping.left, 0, mapping.left + mapping.usableWidth, getHeight());
+		synchronized (stack){
+			final int from = Math.max(0, stack.lowerBound(mapping.minX) - 1);
+			final int to = Math.min(stack.size(), stack.upperBound(mapping.maxX) + 1);
+			final int count = to - from;
+			if (count >= 2){
+				if (stackX.length < count){
+					stackX = new float[count];
+					stackLower = new float[count];
+					stackUpper = new float[count];
+				}
+				final float baseline = (float) (mapping.bottom + mapping.minY * scaleY);
+				for (int i = 0; i < count; i++){
+					stackX[i] = (float) (mapping.left + (stack.getX(from + i) - mapping.minX) * scaleX);
+					stackLower[i] = baseline;
+				}
+				for (int s = 0; s < stack.getSeriesCount(); s++){
+					final float[] upper = stackUpper;
+					final float[] lower = stackLower;
+					path.reset();
+					for (int i = 0; i < count; i++){
+						upper[i] = (float) (mapping.bottom - (stack.getTotal(s, from + i) - mapping.minY) * scaleY);
+						if (i == 0){
+							path.moveTo(stackX[i], upper[i]);
 						} else {
-							newXPixels = sidePadding + (xPercent*usableWidth);
-							newYPixels = getHeight() - bottomPadding - (usableHeight*yPercent);
-							path.lineTo(newXPixels, newYPixels);
-							Path pa = new Path();
-							pa.moveTo(lastXPixels, lastYPixels);
-							pa.lineTo(newXPixels, newYPixels);
-							pa.lineTo(newXPixels, 0);
-							pa.lineTo(lastXPixels, 0);
-							pa.close();
-							canvas.drawPath(pa, paint);
-							lastXPixels = newXPixels;
-							lastYPixels = newYPixels;
+							path.lineTo(stackX[i], upper[i]);
 						}
-						count++;
 					}
-					
-					path.reset();
-					
-					path.moveTo(0, getHeight()-bottomPadding);
-					path.lineTo(sidePadding, getHeight()-bottomPadding);
-					path.lineTo(sidePadding, 0);
-					path.lineTo(0, 0);
-					path.close();
-					canvas.drawPath(path, paint);
-					
-					path.reset();
-					
-					path.moveTo(getWidth(), getHeight()-bottomPadding);
-					path.lineTo(getWidth()-sidePadding, getHeight()-bottomPadding);
-					path.lineTo(getWidth()-sidePadding, 0);
-					path.lineTo(getWidth(), 0);
+					for (int i = count - 1; i >= 0; i--){
+						path.lineTo(stackX[i], lower[i]);
+					}
 					path.close();
-					
+					paint.setColor(stack.getColor(s));
 					canvas.drawPath(path, paint);
-					
+					stackLower = upper;
+					stackUpper = lower;
 				}
-				
-				lineCount++;
 			}
+		}
+		canvas.restore();
+		path.reset();
+	}
+	
+	private void drawLine(Canvas canvas, Line line) {
+		final PixelMapping mapping = pixelMapping;
+		final float sidePadding = mapping.left;
+		final float bottom = mapping.bottom;
+		final float usableHeight = mapping.usableHeight;
+		final float usableWidth = mapping.usableWidth;
+		final float minX = mapping.minX, maxX = mapping.maxX;
+		final float minY = mapping.minY, maxY = mapping.maxY;
+		
+		int count = 0;
+		float lastXPixels = 0, newYPixels = 0;
+		float lastYPixels = 0, newXPixels = 0;
+		
+		paint.reset();
+		paint.setAntiAlias(true);
+		paint.setColor(line.getColor());
+		paint.setStrokeWidth(6);
+		
+		if (line.getSeries() != null){
+			drawSeries(canvas, line.getSeries(), minX, maxX, minY, maxY,
+					sidePadding, bottom, usableWidth, usableHeight);
+			return;
+		}
+		if (line.getTimeSeries() != null){
+			drawTimeSeries(canvas, line.getTimeSeries());
+			return;
+		}
+		
+		// Collect the segments into the shared vertex buffer and draw them in one call
+		ensureVertexCapacity(line.getSize());
+		float[] vertices = vertexBuffer;
+		int vertexCount = 0;
+		
+		for (LinePoint p : line.getPoints()){
+			float yPercent = (p.getY()-minY)/(maxY - minY);
+			float xPercent = (p.getX()-minX)/(maxX - minX);
+			if (count == 0){
+				lastXPixels = sidePadding + (xPercent*usableWidth);
+				lastYPixels = bottom - (usableHeight*yPercent);
+			} else {
+				newXPixels = sidePadding + (xPercent*usableWidth);
+				newYPixels = bottom - (usableHeight*yPercent);
+				vertices[vertexCount++] = lastXPixels;
+				vertices[vertexCount++] = lastYPixels;
+				vertices[vertexCount++] = newXPixels;
+				vertices[vertexCount++] = newYPixels;
+				lastXPixels = newXPixels;
+				lastYPixels = newYPixels;
+			}
+			count++;
+		}
+		if (vertexCount > 0){
+			canvas.drawLines(vertices, 0, vertexCount, paint);
+		}
+	}
+	
+	// Copies the marker sprite to every point and records their touch regions.
+	// Markers within markerSpacing of the last one drawn are skipped along with
+	// their regions, and a line whose points average under a quarter of that
+	// apart shows none.
+	private void drawMarkers(Canvas canvas, Line line) {
+		if (!line.isShowingPoints()) return;
+		final ArrayList<LinePoint> points = line.getPoints();
+		final int count = points.size();
+		if (count == 0) return;
+		final PixelMapping mapping = pixelMapping;
+		final float minX = mapping.minX, maxX = mapping.maxX;
+		final float minY = mapping.minY, maxY = mapping.maxY;
+		final float spacing = markerSpacing;
+		final Bitmap sprite = getMarkerSprite();
+		final float half = sprite.getWidth() / 2f;
+		
+		boolean hidden = false;
+		if (spacing > 0 && count > 1){
+			float span = (points.get(count-1).getX() - points.get(0).getX())/(maxX - minX)*mapping.usableWidth;
+			hidden = Math.abs(span) / (count - 1) < spacing / 4;
+		}
+		
+		boolean hasLast = false;
+		float lastXPixels = 0, lastYPixels = 0;
+		for (int i = 0; i < count; i++){
+			LinePoint p = points.get(i);
+			float yPercent = (p.getY()-minY)/(maxY - minY);
+			float xPercent = (p.getX()-minX)/(maxX - minX);
+			float xPixels = mapping.left + (xPercent*mapping.usableWidth);
+			float yPixels = mapping.bottom - (mapping.usableHeight*yPercent);
 			
-			paint.reset();
+			if (hidden || (hasLast && Math.abs(xPixels - lastXPixels) < spacing
+					&& Math.abs(yPixels - lastYPixels) < spacing)){
+				if (p.getRegion() != null) p.getRegion().setEmpty();
+				continue;
+			}
+			canvas.drawBitmap(sprite, xPixels - half, yPixels - half, null);
+			lastXPixels = xPixels;
+			lastYPixels = yPixels;
+			hasLast = true;
 			
-			paint.setColor(Color.BLACK);
-			paint.setAlpha(50);
+			Path path2 = p.getPath();
+			if (path2 == null){
+				path2 = new Path();
+				p.setPath(path2);
+			} else {
+				path2.reset();
+			}
+			path2.addCircle(xPixels, yPixels, 30, Direction.CW);
+			if (p.getRegion() == null){
+				p.setRegion(new Region());
+			}
+			p.getRegion().set((int)(xPixels-30), (int)(yPixels-30), (int)(xPixels+30), (int)(yPixels+30));
+		}
+	}
+	
+	// The grey and white marker, drawn once and shared by every graph
+	private static Bitmap getMarkerSprite() {
+		if (markerSprite == null){
+			final int size = 22;
+			Bitmap sprite = Bitmap.createBitmap(size, size, Config.ARGB_8888);
+			Canvas canvas = new Canvas(sprite);
+			Paint paint = new Paint();
 			paint.setAntiAlias(true);
-			canvas.drawLine(sidePadding, getHeight() - bottomPadding, getWidth()-sidePadding, getHeight()-bottomPadding, paint);
-			paint.setAlpha(255);
-			
-			
-			for (Line line : lines){
-				int count = 0;
-				float lastXPixels = 0, newYPixels = 0;
-				float lastYPixels = 0, newXPixels = 0;
-				float maxY = getMaxY();
-				float minY = getMinY();
-				float maxX = getMaxX();
-				float minX = getMinX();
-				
-				paint.setColor(line.getColor());
-				paint.setStrokeWidth(6);
-				
-				for (LinePoint p : line.getPoints()){
-					float yPercent = (p.getY()-minY)/(maxY - minY);
-					float xPercent = (p.getX()-minX)/(maxX - minX);
-					if (count == 0){
-						lastXPixels = sidePadding + (xPercent*usableWidth);
-						lastYPixels = getHeight() - bottomPadding - (usableHeight*yPercent);
-					} else {
-						newXPixels = sidePadding + (xPercent*usableWidth);
-						newYPixels = getHeight() - bottomPadding - (usableHeight*yPercent);
-						canvas.drawLine(lastXPixels, lastYPixels, newXPixels, newYPixels, paint);
-						lastXPixels = newXPixels;
-						lastYPixels = newYPixels;
-					}
-					count++;
+			paint.setColor(Color.GRAY);
+			canvas.drawCircle(size / 2f, size / 2f, 10, paint);
+			paint.setColor(Color.WHITE);
+			canvas.drawCircle(size / 2f, size / 2f, 5, paint);
+			markerSprite = sprite;
+		}
+		return markerSprite;
+	}
+	
+	// Visible lines by ascending z-order, in list order among equal z-orders
+	private void sortDrawOrder() {
+		if (drawOrder.length < lines.size()){
+			drawOrder = new int[lines.size()];
+		}
+		drawCount = 0;
+		for (int i = 0; i < lines.size(); i++){
+			if (!lines.get(i).isVisible()) continue;
+			final int z = lines.get(i).getZOrder();
+			int j = drawCount++;
+			while (j > 0 && lines.get(drawOrder[j - 1]).getZOrder() > z){
+				drawOrder[j] = drawOrder[j - 1];
+				j--;
+			}
+			drawOrder[j] = i;
+		}
+	}
+	
+	private boolean useLayers() {
+		if (renderMode != MODE_LINES || layerMemoryLimit <= 0) return false;
+		int visible = 0;
+		for (int i = 0; i < lines.size(); i++){
+			if (lines.get(i).isVisible()) visible++;
+		}
+		return visible * 4L * getWidth() * getHeight() <= layerMemoryLimit;
+	}
+	
+	// Redraws the layers of the visible lines that changed since they were
+	// drawn, then keeps the layers of hidden lines only while they fit the limit
+	private void updateLayers() {
+		final int width = getWidth(), height = getHeight();
+		long bytes = 0;
+		for (int i = 0; i < lines.size(); i++){
+			Line line = lines.get(i);
+			if (!line.isVisible()) continue;
+			if (line.layer == null){
+				line.layer = new LineLayer();
+			}
+			LineLayer layer = line.layer;
+			if (!layer.isCurrent(width, height, line.getVersion(), layerGeneration)){
+				layer.prepare(width, height);
+				drawLine(layer.canvas, line);
+				drawMarkers(layer.canvas, line);
+				layer.version = line.getVersion();
+				layer.generation = layerGeneration;
+			}
+			bytes += layer.getByteCount();
+		}
+		for (int i = 0; i < lines.size(); i++){
+			LineLayer layer = lines.get(i).layer;
+			if (lines.get(i).isVisible() || layer == null) continue;
+			if (bytes + layer.getByteCount() > layerMemoryLimit){
+				layer.release();
+			} else {
+				bytes += layer.getByteCount();
+			}
+		}
+		layerBytes = bytes;
+	}
+	
+	// Versions only grow, so their sum changes whenever any line does, hidden
+	// lines and lines without a layer included
+	private long getVersionSum() {
+		long sum = 0;
+		for (int i = 0; i < lines.size(); i++){
+			sum += lines.get(i).getVersion();
+		}
+		return sum;
+	}
+	
+	// Brings the layers up to date without rebuilding the image. Returns false
+	// when a changed line moved the bounds, so everything has to be redrawn.
+	private boolean refreshLayers() {
+		Line fill = getFillLine();
+		int fillVersion = fill != null && fill.isVisible() ? fill.getVersion() : -1;
+		boolean fillChanged = fill != drawnFillLine || fillVersion != drawnFillVersion;
+		long versions = getVersionSum();
+		if (fillChanged || versions != drawnVersions){
+			computeBounds();
+			final PixelMapping mapping = pixelMapping;
+			if (minX != mapping.minX || maxX != mapping.maxX || minY != mapping.minY || maxY != mapping.maxY
+					|| timeBase != mapping.timeBase){
+				return false;
+			}
+			drawnVersions = versions;
+			if (fillChanged){
+				prepareImage();
+				drawBase();
+			}
+		}
+		updateLayers();
+		return true;
+	}
+	
+	private void releaseLayers() {
+		for (int i = 0; i < lines.size(); i++){
+			if (lines.get(i).layer != null) lines.get(i).layer.release();
+		}
+		layerBytes = 0;
+	}
+	
+	// Draws a compressed line, decoding only the blocks inside the x range and
+	// summarizing blocks narrower than two pixels from their headers
+	private void drawSeries(Canvas canvas, CompressedSeries series, float minX, float maxX, float minY, float maxY,
+			float left, float bottom, float usableWidth, float usableHeight) {
+		final int blocks = series.getBlockCount();
+		if (blocks == 0) return;
+		final int blockSize = series.getBlockSize();
+		if (seriesX.length < blockSize){
+			seriesX = new long[blockSize];
+			seriesY = new float[blockSize];
+		}
+		// Room for a whole block plus the segment joining it to the previous one
+		ensureVertexCapacity(blockSize + 4);
+		final float[] vertices = vertexBuffer;
+		final float scaleX = maxX > minX ? usableWidth / (maxX - minX) : 0;
+		final float scaleY = maxY > minY ? usableHeight / (maxY - minY) : 0;
+		
+		int vertexCount = 0;
+		boolean hasLast = false;
+		float lastX = 0, lastY = 0;
+		final int first = series.findBlock((long) Math.floor(minX));
+		final int last = series.findBlock((long) Math.ceil(maxX));
+		for (int b = first; b <= last; b++){
+			if (vertexCount + (blockSize + 3) * 4 > vertices.length){
+				canvas.drawLines(vertices, 0, vertexCount, paint);
+				vertexCount = 0;
+			}
+			final float x0 = left + (series.getBlockFirstX(b) - minX) * scaleX;
+			final float x1 = left + (series.getBlockLastX(b) - minX) * scaleX;
+			if (x1 - x0 < 2){
+				final float firstY = bottom - (series.getBlockFirstY(b) - minY) * scaleY;
+				final float lowY = bottom - (series.getBlockMinY(b) - minY) * scaleY;
+				final float highY = bottom - (series.getBlockMaxY(b) - minY) * scaleY;
+				final float endY = bottom - (series.getBlockLastY(b) - minY) * scaleY;
+				if (Float.isNaN(firstY) || Float.isNaN(lowY) || Float.isNaN(highY) || Float.isNaN(endY)){
+					hasLast = false;
+					continue;
+				}
+				if (hasLast){
+					vertexCount = addSegment(vertices, vertexCount, lastX, lastY, x0, firstY);
 				}
+				vertexCount = addSegment(vertices, vertexCount, x0, lowY, x0, highY);
+				vertexCount = addSegment(vertices, vertexCount, x0, firstY, x1, endY);
+				lastX = x1;
+				lastY = endY;
+				hasLast = true;
+				continue;
 			}
 			
-			
-			int pointCount = 0;
-			
-			for (Line line : lines){
-				float maxY = getMaxY();
-				float minY = getMinY();
-				float maxX = getMaxX();
-				float minX = getMinX();
-				
-				paint.setColor(line.getColor());
-				paint.setStrokeWidth(6);
-				paint.setStrokeCap(Paint.Cap.ROUND);
-				
-				if (line.isShowingPoints()){
-					for (LinePoint p : line.getPoints()){
-						float yPercent = (p.getY()-minY)/(maxY - minY);
-						float xPercent = (p.getX()-minX)/(maxX - minX);
-						float xPixels = sidePadding + (xPercent*usableWidth);
-						float yPixels = getHeight() - bottomPadding - (usableHeight*yPercent);
-						
-						paint.setColor(Color.GRAY);
-						canvas.drawCircle(xPixels, yPixels, 10, paint);
-						paint.setColor(Color.WHITE);
-						canvas.drawCircle(xPixels, yPixels, 5, paint);
-						
-						Path path2 = new Path();
-						path2.addCircle(xPixels, yPixels, 30, Direction.CW);
-						p.setPath(path2);
-						p.setRegion(new Region((int)(xPixels-30), (int)(yPixels-30), (int)(xPixels+30), (int)(yPixels+30)));
-						
-						if (indexSelected == pointCount && listener != null){
-							paint.setColor(Color.parseColor("#33B5E5"));
-							paint.setAlpha(100);
-							canvas.drawPath(p.getPath(), paint);
-							paint.setAlpha(255);
-						}
-						
-						pointCount++;
-					}
+			final int count = series.decode(b, seriesX, seriesY);
+			for (int i = 0; i < count; i++){
+				final float px = left + (seriesX[i] - minX) * scaleX;
+				final float py = bottom - (seriesY[i] - minY) * scaleY;
+				if (Float.isNaN(py)){
+					hasLast = false;
+					continue;
 				}
+				if (hasLast){
+					vertexCount = addSegment(vertices, vertexCount, lastX, lastY, px, py);
+				}
+				lastX = px;
+				lastY = py;
+				hasLast = true;
 			}
-			
+		}
+		if (vertexCount > 0){
+			canvas.drawLines(vertices, 0, vertexCount, paint);
+		}
+	}
+	
+	// Draws a time series relative to the time base, visiting only the samples
+	// inside the x range plus one on either side to reach the edges
+	private void drawTimeSeries(Canvas canvas, TimeSeries series) {
+		final PixelMapping mapping = pixelMapping;
+		canvas.save();
+		canvas.clipRect(mapping.left, 0, mapping.left + mapping.usableWidth, getHeight());
+		polyline.begin(canvas, paint);
+		synchronized (series){
+			mapping.addTo(polyline, series);
+		}
+		polyline.finish();
+		canvas.restore();
+	}
+	
+	private static int addSegment(float[] vertices, int index, float x0, float y0, float x1, float y1) {
+		vertices[index] = x0;
+		vertices[index + 1] = y0;
+		vertices[index + 2] = x1;
+		vertices[index + 3] = y1;
+		return index + 4;
+	}
+	
+	public void onDraw(Canvas ca) {
+		boolean imageUsable = fullImage != null && !fullImage.isRecycled()
+				&& fullImage.getWidth() == getWidth() && fullImage.getHeight() == getHeight();
+		if (imageUsable && shouldUpdate && deferredUpdate) {
+			// Keep showing the previous image until the scheduler rebuilds it
+			RenderScheduler.getInstance().schedule(renderTask);
+		} else if (!imageUsable || shouldUpdate || useLayers() != imageLayered
+				|| (imageLayered && !refreshLayers())) {
+			drawGraph();
 			shouldUpdate = false;
+			deferredUpdate = false;
+			// The data may have moved under the crosshair
+			if (scrubbing) locateScrub(scrubX);
 		}
 		
 		ca.drawBitmap(fullImage, 0, 0, null);
+		if (imageLayered){
+			sortDrawOrder();
+			for (int i = 0; i < drawCount; i++){
+				LineLayer layer = lines.get(drawOrder[i]).layer;
+				if (layer != null && layer.bitmap != null) ca.drawBitmap(layer.bitmap, 0, 0, null);
+			}
+		}
+		drawSelection(ca);
+		if (scrubbing) drawScrubOverlay(ca);
+		GraphMemoryManager.getInstance().update(memoryClient,
+				GraphMemoryManager.getByteCount(fullImage) + 4L * vertexBuffer.length + polyline.getByteCount()
+				+ densityRenderer.getByteCount() + scatterRenderer.getByteCount() + layerBytes + 12L * stackX.length);
+	}
+	
+	// The highlight of the touched point, counted across every line as onTouchEvent does
+	private void drawSelection(Canvas canvas) {
+		if (indexSelected < 0 || listener == null || renderMode != MODE_LINES) return;
+		int count = 0;
+		for (int i = 0; i < lines.size(); i++){
+			Line line = lines.get(i);
+			if (indexSelected < count + line.getSize()){
+				LinePoint p = line.getPoint(indexSelected - count);
+				if (line.isVisible() && p.getPath() != null){
+					overlayPaint.reset();
+					overlayPaint.setAntiAlias(true);
+					overlayPaint.setColor(0xFF33B5E5);
+					overlayPaint.setAlpha(100);
+					canvas.drawPath(p.getPath(), overlayPaint);
+				}
+				return;
+			}
+			count += line.getSize();
+		}
+	}
+	
+	// Drawn over the cached image, so moving the crosshair never rebuilds it
+	private void drawScrubOverlay(Canvas canvas) {
+		final PixelMapping mapping = pixelMapping;
+		final Paint paint = overlayPaint;
+		paint.reset();
+		paint.setAntiAlias(true);
+		paint.setColor(0xFF33B5E5);
+		paint.setStrokeWidth(2);
+		canvas.drawLine(scrubX, mapping.bottom - mapping.usableHeight, scrubX, mapping.bottom, paint);
 		
+		paint.setTextSize(scrubTextSize);
+		final int lineCount = Math.min(lines.size(), scrubIndices.length);
+		for (int i = 0; i < lineCount; i++){
+			final float x = scrubPoints[i * 2];
+			final float y = scrubPoints[i * 2 + 1];
+			if (scrubIndices[i] < 0 || Float.isNaN(x) || Float.isNaN(y)) continue;
+			paint.setColor(lines.get(i).getColor());
+			canvas.drawCircle(x, y, 8, paint);
+			paint.setColor(Color.WHITE);
+			canvas.drawCircle(x, y, 4, paint);
+			
+			final StringBuilder label = scrubLabel;
+			label.setLength(0);
+			appendValue(label, scrubValues[i]);
+			final float width = paint.measureText(label, 0, label.length());
+			final float textX = x + 12 + width > getWidth() ? x - 12 - width : x + 12;
+			paint.setColor(lines.get(i).getColor());
+			canvas.drawText(label, 0, label.length(), textX, Math.max(y - 12, scrubTextSize), paint);
+		}
+	}
+	
+	// Two decimals at most, built without allocating as it runs on every frame
+	private static void appendValue(StringBuilder label, double value) {
+		long hundredths = Math.round(value * 100);
+		if (hundredths < 0){
+			label.append('-');
+			hundredths = -hundredths;
+		}
+		label.append(hundredths / 100);
+		final int fraction = (int) (hundredths % 100);
+		if (fraction == 0) return;
+		label.append('.');
+		if (fraction % 10 == 0){
+			label.append(fraction / 10);
+		} else {
+			if (fraction < 10) label.append('0');
+			label.append(fraction);
+		}
+	}
+	
+	private void scrubTo(float touchX) {
+		if (!locateScrub(touchX)) return;
+		scrubbing = true;
+		invalidate();
+		if (scrubListener != null){
+			scrubListener.onScrub((float) (pixelMapping.minX + (scrubX - pixelMapping.left) / pixelMapping.scaleX()),
+					scrubIndices);
+		}
+	}
+	
+	private void endScrub() {
+		if (!scrubbing) return;
+		scrubbing = false;
+		invalidate();
+		if (scrubListener != null) scrubListener.onScrubEnd();
+	}
+	
+	// Finds the point nearest to touchX on every line, using the mapping of the
+	// image on screen so the crosshair matches what is drawn
+	private boolean locateScrub(float touchX) {
+		final PixelMapping mapping = pixelMapping;
+		final double scaleX = mapping.scaleX();
+		if (scaleX == 0) return false;
+		final int lineCount = lines.size();
+		if (scrubIndices.length != lineCount){
+			scrubIndices = new int[lineCount];
+			scrubValues = new double[lineCount];
+			scrubPoints = new float[lineCount * 2];
+		}
+		scrubX = Math.max(mapping.left, Math.min(mapping.left + mapping.usableWidth, touchX));
+		final double x = mapping.minX + (scrubX - mapping.left) / scaleX;
+		for (int i = 0; i < lineCount; i++){
+			findNearest(i, lines.get(i), x);
+		}
+		return true;
+	}
+	
+	private void findNearest(int lineIndex, Line line, double x) {
+		final PixelMapping mapping = pixelMapping;
+		int index = -1;
+		double pointX = 0, pointY = 0;
+		if (!line.isVisible()){
+			scrubIndices[lineIndex] = -1;
+			return;
+		}
 		
+		TimeSeries timeSeries = line.getTimeSeries();
+		CompressedSeries series = line.getSeries();
+		if (timeSeries != null){
+			final double time = mapping.timeBase + x;
+			synchronized (timeSeries){
+				final int i = timeSeries.findNearest(time);
+				if (i >= 0){
+					index = i;
+					pointX = timeSeries.getTime(i) - mapping.timeBase;
+					pointY = timeSeries.getValue(i);
+				}
+			}
+		} else if (series != null){
+			final int blockSize = series.getBlockSize();
+			if (seriesX.length < blockSize){
+				seriesX = new long[blockSize];
+				seriesY = new float[blockSize];
+			}
+			index = series.findNearest(x, seriesX, seriesY);
+			if (index >= 0){
+				pointX = seriesX[0];
+				pointY = seriesY[0];
+			}
+		} else {
+			ArrayList<LinePoint> points = line.getPoints();
+			int low = 0, high = points.size();
+			while (low < high){
+				final int mid = (low + high) >>> 1;
+				if (points.get(mid).getX() < x){
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			if (low == points.size() || (low > 0 && x - points.get(low - 1).getX() < points.get(low).getX() - x)) low--;
+			if (low >= 0){
+				index = low;
+				pointX = points.get(low).getX();
+				pointY = points.get(low).getY();
+			}
+		}
+		
+		scrubIndices[lineIndex] = index;
+		scrubValues[lineIndex] = pointY;
+		scrubPoints[lineIndex * 2] = (float) (mapping.left + (pointX - mapping.minX) * mapping.scaleX());
+		scrubPoints[lineIndex * 2 + 1] = (float) (mapping.bottom - (pointY - mapping.minY) * mapping.scaleY());
+	}
+	
+	@Override
+	protected void onDetachedFromWindow() {
+		RenderScheduler.getInstance().cancel(renderTask);
+		// A detached graph, such as one on the back stack, is no longer tracked
+		// by the memory manager, so it must not keep its caches either
+		releaseCaches();
+		GraphMemoryManager.getInstance().remove(memoryClient);
+		super.onDetachedFromWindow();
 	}
 	
 	@Override
 	public boolean onTouchEvent(MotionEvent event) {
+		if (scrubEnabled){
+			final int action = event.getAction();
+			if (action == MotionEvent.ACTION_DOWN || action == MotionEvent.ACTION_MOVE){
+				if (action == MotionEvent.ACTION_DOWN && getParent() != null){
+					getParent().requestDisallowInterceptTouchEvent(true);
+				}
+				scrubTo(event.getX());
+			} else if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL){
+				endScrub();
+			}
+			return true;
+		}
+		if (renderMode == MODE_DENSITY) return super.onTouchEvent(event);
+		if (renderMode == MODE_SCATTER){
+			if (event.getAction() == MotionEvent.ACTION_UP && listener != null){
+				long hit = scatterRenderer.findNearest(event.getX(), event.getY(), 30);
+				if (hit >= 0){
+					listener.onClick((int) (hit >>> 32), (int) hit);
+				}
+			}
+			return true;
+		}
 
+	    final int previousSelected = indexSelected;
 	    Point point = new Point();
 	    point.x = (int) event.getX();
 	    point.y = (int) event.getY();
@@ -347,6 +1370,11 @@ public class LineGraph extends View {
 	    Region r = new Region();
 	    for (Line line : lines){
 	    	pointCount = 0;
+	    	if (!line.isVisible()){
+	    		count += line.getSize();
+	    		lineCount++;
+	    		continue;
+	    	}
 	    	for (LinePoint p : line.getPoints()){
 	    		
 	    		if (p.getPath() != null && p.getRegion() != null){
@@ -368,9 +1396,9 @@ public class LineGraph extends View {
 	    	
 	    }
 	    
-	    if (event.getAction() == MotionEvent.ACTION_DOWN || event.getAction() == MotionEvent.ACTION_UP){
-	    	shouldUpdate = true;
-	    	postInvalidate();
+	    // The highlight is drawn over the image, so nothing is rebuilt
+	    if (indexSelected != previousSelected){
+	    	invalidate();
 	    }
 	    
 	    
@@ -385,4 +1413,14 @@ public class LineGraph extends View {
 	public interface OnPointClickedListener {
 		abstract void onClick(int lineIndex, int pointIndex);
 	}
+	
+	public interface OnScrubListener {
+		/**
+		 * x is where the crosshair is in data coordinates, relative to the time
+		 * base for time series. pointIndices holds the index of the nearest
+		 * point of every line, or -1 for an empty line; the array is reused.
+		 */
+		abstract void onScrub(float x, int[] pointIndices);
+		abstract void onScrubEnd();
+	}
 }
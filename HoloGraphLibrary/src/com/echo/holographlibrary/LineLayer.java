@@ -0,0 +1,62 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+package com.echo.holographlibrary;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+/** The cached image of a single line, composited by LineGraph in z-order. */
+final class LineLayer {
+	Bitmap bitmap;
+	final Canvas canvas = new Canvas();
+	int version = -1;
+	int generation = -1;
+
+	boolean isCurrent(int width, int height, int version, int generation) {
+		return bitmap != null && !bitmap.isRecycled() && bitmap.getWidth() == width && bitmap.getHeight() == height
+				&& this.version == version && this.generation == generation;
+	}
+
+	void prepare(int width, int height) {
+		if (bitmap == null || bitmap.isRecycled() || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+			GraphMemoryManager.release(bitmap, canvas);
+			bitmap = Bitmap.createBitmap(width, height, Config.ARGB_8888);
+			canvas.setBitmap(bitmap);
+		} else {
+			bitmap.eraseColor(Color.TRANSPARENT);
+		}
+	}
+
+	void release() {
+		GraphMemoryManager.release(bitmap, canvas);
+		bitmap = null;
+		version = -1;
+	}
+
+	long getByteCount() {
+		return bitmap == null ? 0 : GraphMemoryManager.getByteCount(bitmap);
+	}
+}
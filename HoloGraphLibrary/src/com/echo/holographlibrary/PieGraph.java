@@ -32,7 +32,7 @@ import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Path.Direction;
 import android.graphics.PixelFormat;
-import android.graphics.Point;
+import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.Region;
 import android.util.AttributeSet;
@@ -52,25 +52,87 @@ public class PieGraph extends View {
 	private int thickness = 50;
 	private OnSliceClickedListener listener;
 	
+	public static final int OTHER_SLICE = PieSelection.OTHER;
+	
+	private int dataVersion = 0;
+	private int cachedVersion = -1;
+	private int cachedWidth, cachedHeight;
+	private int cachedSliceCount = 0;
+	private boolean anglesStale = false;
+	private float[] startAngles = new float[0];
+	private float[] sweepAngles = new float[0];
+	
+	private int topSlices = 0;
+	private float minSweepAngle = 0;
+	private PieSlice otherSlice = new PieSlice();
+	private final PieSelection selection = new PieSelection();
+	private final ArrayList<Path> slicePaths = new ArrayList<Path>();
+	private final RectF outerRect = new RectF();
+	private final RectF innerRect = new RectF();
+	private final RectF highlightRect = new RectF();
+	private final Region boundsRegion = new Region();
+	private float midX, midY, radius, innerRadius;
+	private boolean scheduledRendering = false;
+	private final Rect visibleRect = new Rect();
+	
 	
 	public PieGraph(Context context) {
 		super(context);
+		init();
 	}
 	public PieGraph(Context context, AttributeSet attrs) {
 		super(context, attrs);
+		init();
 	}
 	
-	public void onDraw(Canvas canvas) {
-		canvas.drawColor(Color.TRANSPARENT);
-		paint.reset();
-		paint.setAntiAlias(true);
-		float midX, midY, radius, innerRadius;
-		path.reset();
+	private void init() {
+		otherSlice.setColor(Color.GRAY);
+		otherSlice.setTitle(getContext().getString(R.string.pie_other));
+	}
+	
+	/**
+	 * Leaves rebuilding the slice geometry after a change to the shared
+	 * {@link RenderScheduler} instead of doing it in the next draw. The previous
+	 * slices stay on screen until the scheduler gets to this graph.
+	 */
+	public void setScheduledRendering(boolean scheduled) {
+		scheduledRendering = scheduled;
+		if (!scheduled) {
+			RenderScheduler.getInstance().cancel(renderTask);
+		}
+		postInvalidate();
+	}
+	
+	private final RenderScheduler.Task renderTask = new RenderScheduler.Task() {
+		@Override
+		boolean isVisible() {
+			return isShown() && getGlobalVisibleRect(visibleRect);
+		}
 		
-		float currentAngle = 270;
-		float currentSweep = 0;
-		int totalValue = 0;
-		float padding = 2;
+		@Override
+		void rebuild() {
+			if (getWidth() <= 0 || getHeight() <= 0 || !isGeometryStale()) return;
+			buildGeometry();
+			invalidate();
+		}
+	};
+	
+	@Override
+	protected void onDetachedFromWindow() {
+		RenderScheduler.getInstance().cancel(renderTask);
+		super.onDetachedFromWindow();
+	}
+	
+	// Slice geometry is only rebuilt when the data, thickness or view size
+	// change. Single values changed through updateSlice only move the angles.
+	private boolean isGeometryStale() {
+		return cachedVersion != dataVersion || cachedWidth != getWidth() || cachedHeight != getHeight()
+				|| cachedSliceCount != slices.size();
+	}
+	
+	private void buildGeometry() {
+		final int sliceCount = slices.size();
+		final float padding = 2;
 		
 		midX = getWidth()/2;
 		midY = getHeight()/2;
@@ -82,32 +144,100 @@ public class PieGraph extends View {
 		radius -= padding;
 		innerRadius = radius - thickness;
 		
-		for (PieSlice slice : slices){
-			totalValue += slice.getValue();
+		selection.ensureCapacity(sliceCount);
+		for (int i = 0; i < sliceCount; i++){
+			selection.values[i] = slices.get(i).getValue();
 		}
+		selection.select(sliceCount, topSlices, minSweepAngle);
 		
-		int count = 0;
-		for (PieSlice slice : slices){
-			Path p = new Path();
-			paint.setColor(slice.getColor());
-			currentSweep = (slice.getValue()/totalValue)*(360);
-			p.arcTo(new RectF(midX-radius, midY-radius, midX+radius, midY+radius), currentAngle+padding, currentSweep - padding);
-			p.arcTo(new RectF(midX-innerRadius, midY-innerRadius, midX+innerRadius, midY+innerRadius), (currentAngle+padding) + (currentSweep - padding), -(currentSweep-padding));
+		outerRect.set(midX-radius, midY-radius, midX+radius, midY+radius);
+		innerRect.set(midX-innerRadius, midY-innerRadius, midX+innerRadius, midY+innerRadius);
+		boundsRegion.set((int)(midX-radius), (int)(midY-radius), (int)(midX+radius), (int)(midY+radius));
+		layoutSlices();
+		
+		cachedVersion = dataVersion;
+		cachedWidth = getWidth();
+		cachedHeight = getHeight();
+		cachedSliceCount = sliceCount;
+	}
+	
+	// Angles and paths of the slices on display, from the current selection
+	private void layoutSlices() {
+		final float padding = 2;
+		final int displayCount = selection.getDisplayCount();
+		final double totalValue = selection.getTotal();
+		otherSlice.setValue((float) selection.getOtherTotal());
+		if (startAngles.length < displayCount){
+			startAngles = new float[displayCount];
+			sweepAngles = new float[displayCount];
+		}
+		while (slicePaths.size() < displayCount){
+			slicePaths.add(new Path());
+		}
+		
+		float currentAngle = PieLayout.START_ANGLE;
+		for (int i = 0; i < displayCount; i++){
+			PieSlice slice = getDisplaySlice(i);
+			float currentSweep = PieLayout.getSweepAngle(slice.getValue(), totalValue);
+			startAngles[i] = currentAngle;
+			sweepAngles[i] = currentSweep;
+			
+			Path p = slicePaths.get(i);
+			p.reset();
+			p.arcTo(outerRect, currentAngle+padding, currentSweep - padding);
+			p.arcTo(innerRect, (currentAngle+padding) + (currentSweep - padding), -(currentSweep-padding));
 			p.close();
 			
 			slice.setPath(p);
-			slice.setRegion(new Region((int)(midX-radius), (int)(midY-radius), (int)(midX+radius), (int)(midY+radius)));
-			canvas.drawPath(p, paint);
+			slice.setRegion(boundsRegion);
+			
+			currentAngle = currentAngle+currentSweep;
+		}
+		anglesStale = false;
+	}
+	
+	private PieSlice getDisplaySlice(int position) {
+		int index = selection.getDisplayIndex(position);
+		return index == OTHER_SLICE ? otherSlice : slices.get(index);
+	}
+	
+	public void onDraw(Canvas canvas) {
+		canvas.drawColor(Color.TRANSPARENT);
+		if (isGeometryStale()){
+			if (scheduledRendering && cachedVersion >= 0 && cachedSliceCount == slices.size()
+					&& cachedWidth == getWidth() && cachedHeight == getHeight()){
+				// Keep drawing the previous geometry until the scheduler rebuilds it
+				RenderScheduler.getInstance().schedule(renderTask);
+			} else {
+				buildGeometry();
+			}
+		}
+		if (anglesStale){
+			layoutSlices();
+		}
+		
+		paint.reset();
+		paint.setAntiAlias(true);
+		float padding = 2;
+		final int displayCount = selection.getDisplayCount();
+		
+		for (int count = 0; count < displayCount; count++){
+			PieSlice slice = getDisplaySlice(count);
+			paint.setColor(slice.getColor());
+			canvas.drawPath(slicePaths.get(count), paint);
 			
 			if (indexSelected == count && listener != null){
+				float currentAngle = startAngles[count];
+				float currentSweep = sweepAngles[count];
 				path.reset();
-				paint.setColor(slice.getColor());
 				paint.setColor(Color.parseColor("#33B5E5"));
 				paint.setAlpha(100);
 				
-				if (slices.size() > 1) {
-					path.arcTo(new RectF(midX-radius-(padding*2), midY-radius-(padding*2), midX+radius+(padding*2), midY+radius+(padding*2)), currentAngle, currentSweep+padding);
-					path.arcTo(new RectF(midX-innerRadius+(padding*2), midY-innerRadius+(padding*2), midX+innerRadius-(padding*2), midY+innerRadius-(padding*2)), currentAngle + currentSweep + padding, -(currentSweep + padding));
+				if (displayCount > 1) {
+					highlightRect.set(midX-radius-(padding*2), midY-radius-(padding*2), midX+radius+(padding*2), midY+radius+(padding*2));
+					path.arcTo(highlightRect, currentAngle, currentSweep+padding);
+					highlightRect.set(midX-innerRadius+(padding*2), midY-innerRadius+(padding*2), midX+innerRadius-(padding*2), midY+innerRadius-(padding*2));
+					path.arcTo(highlightRect, currentAngle + currentSweep + padding, -(currentSweep + padding));
 					path.close();
 				} else {
 					path.addCircle(midX, midY, radius+padding, Direction.CW);
@@ -116,49 +246,48 @@ public class PieGraph extends View {
 				canvas.drawPath(path, paint);
 				paint.setAlpha(255);
 			}
-			
-			currentAngle = currentAngle+currentSweep;
-			
-			count++;
 		}
-		
-		
+	}
+	
+	private void updateGeometry() {
+		if (isGeometryStale()){
+			buildGeometry();
+		} else if (anglesStale){
+			layoutSlices();
+		}
+	}
+	
+	private int findSliceAt(float x, float y) {
+		updateGeometry();
+		return PieLayout.findSlice(x - midX, y - midY, radius, innerRadius,
+				startAngles, sweepAngles, selection.getDisplayCount());
 	}
 	
 	@Override
 	public boolean onTouchEvent(MotionEvent event) {
-
-	    Point point = new Point();
-	    point.x = (int) event.getX();
-	    point.y = (int) event.getY();
-	    
-	    int count = 0;
-	    for (PieSlice slice : slices){
-	    	Region r = new Region();
-	    	r.setPath(slice.getPath(), slice.getRegion());
-	    	if (r.contains((int)point.x,(int) point.y) && event.getAction() == MotionEvent.ACTION_DOWN){
-	    		indexSelected = count;
-	    	} else if (event.getAction() == MotionEvent.ACTION_UP){
-	    		if (r.contains((int)point.x,(int) point.y) && listener != null){
-	    			if (indexSelected > -1){
-		    			listener.onClick(indexSelected);
-	    			}
-	    			indexSelected = -1;
-	    		}
-	    		
-	    	}
-	    	else if(event.getAction() == MotionEvent.ACTION_CANCEL)
-	    		indexSelected = -1;
-		    count++;
-	    }
-	    
-	    if (event.getAction() == MotionEvent.ACTION_DOWN || event.getAction() == MotionEvent.ACTION_UP || event.getAction() == MotionEvent.ACTION_CANCEL){
-	    	postInvalidate();
-	    }
-	    
-	    
-
-	    return true;
+		int action = event.getAction();
+		int hit = findSliceAt(event.getX(), event.getY());
+		
+		if (action == MotionEvent.ACTION_DOWN){
+			if (hit > -1){
+				indexSelected = hit;
+			}
+		} else if (action == MotionEvent.ACTION_UP){
+			if (hit > -1 && listener != null){
+				if (indexSelected > -1){
+					listener.onClick(selection.getDisplayIndex(indexSelected));
+				}
+				indexSelected = -1;
+			}
+		} else if (action == MotionEvent.ACTION_CANCEL){
+			indexSelected = -1;
+		}
+		
+		if (action == MotionEvent.ACTION_DOWN || action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL){
+			postInvalidate();
+		}
+		
+		return true;
 	}
 	
 	public ArrayList<PieSlice> getSlices() {
@@ -166,13 +295,30 @@ public class PieGraph extends View {
 	}
 	public void setSlices(ArrayList<PieSlice> slices) {
 		this.slices = slices;
+		dataVersion++;
 		postInvalidate();
 	}
 	public PieSlice getSlice(int index) {
 		return slices.get(index);
 	}
+	
+	/**
+	 * Changes the value of one slice. The selection of the slices on display
+	 * is patched for that slice alone and only the displayed angles are laid
+	 * out again. Values changed directly on a PieSlice are not noticed until
+	 * the slices are set again.
+	 */
+	public void updateSlice(int index, float value) {
+		slices.get(index).setValue(value);
+		if (!isGeometryStale()){
+			selection.update(index, value);
+			anglesStale = true;
+		}
+		postInvalidate();
+	}
 	public void addSlice(PieSlice slice) {
 		this.slices.add(slice);
+		dataVersion++;
 		postInvalidate();
 	}
 	public void setOnSliceClickedListener(OnSliceClickedListener listener) {
@@ -184,6 +330,7 @@ public class PieGraph extends View {
 	}
 	public void setThickness(int thickness) {
 		this.thickness = thickness;
+		dataVersion++;
 		postInvalidate();
 	}
 	
@@ -191,8 +338,32 @@ public class PieGraph extends View {
 		for (int i = slices.size()-1; i >= 0; i--){
 			slices.remove(i);
 		}
+		dataVersion++;
+		postInvalidate();
+	}
+
+	/**
+	 * Merges every slice outside the largest {@code topSlices} or with a sweep
+	 * below {@code minSweepAngle} degrees into a single "Other" slice. Clicks
+	 * on it are reported as {@link #OTHER_SLICE}. Pass 0 for both to disable.
+	 * Values changed with {@link #updateSlice} move single slices in and out of
+	 * the selection without selecting over every slice again.
+	 */
+	public void setAggregation(int topSlices, float minSweepAngle) {
+		this.topSlices = topSlices;
+		this.minSweepAngle = minSweepAngle;
+		dataVersion++;
 		postInvalidate();
 	}
+	
+	public PieSlice getOtherSlice() {
+		return otherSlice;
+	}
+	
+	public int[] getOtherSliceIndices() {
+		updateGeometry();
+		return selection.getOtherIndices();
+	}
 
 	public static interface OnSliceClickedListener {
 		public abstract void onClick(int index);
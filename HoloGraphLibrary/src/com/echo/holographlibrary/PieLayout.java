@@ -0,0 +1,70 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+package com.echo.holographlibrary;
+
+/**
+ * Angle math of a PieGraph ring. Arcs are measured clockwise from 3 o'clock
+ * and the first slice starts at 12 o'clock.
+ */
+final class PieLayout {
+	static final float START_ANGLE = 270;
+
+	private PieLayout() {
+	}
+
+	static float getSweepAngle(double value, double total) {
+		return total > 0 ? (float) (value / total * 360) : 0;
+	}
+
+	/**
+	 * Resolves a point, given relative to the centre, against the ring
+	 * analytically: its distance must fall inside the ring and its angle is
+	 * binary searched in the slice start angles. Returns the slice index or -1.
+	 */
+	static int findSlice(float dx, float dy, float radius, float innerRadius,
+			float[] startAngles, float[] sweepAngles, int count) {
+		if (count == 0) return -1;
+
+		float distanceSq = dx*dx + dy*dy;
+		float inner = innerRadius > 0 ? innerRadius : 0;
+		if (distanceSq > radius*radius || distanceSq < inner*inner) return -1;
+
+		float angle = (float) Math.toDegrees(Math.atan2(dy, dx));
+		while (angle < START_ANGLE) angle += 360;
+		while (angle >= START_ANGLE + 360) angle -= 360;
+
+		int low = 0;
+		int high = count - 1;
+		while (low < high){
+			int mid = (low + high + 1) >>> 1;
+			if (startAngles[mid] <= angle){
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		if (low < count - 1 && angle >= startAngles[low] + sweepAngles[low]) return -1;
+		return sweepAngles[low] > 0 ? low : -1;
+	}
+}
@@ -0,0 +1,245 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+package com.echo.holographlibrary;
+
+import java.util.Arrays;
+
+/**
+ * Which slices of a PieGraph are drawn and which are merged into its "Other"
+ * slice. The kept slices sit in a min-heap and the merged ones in a max-heap,
+ * both indexed by slice, so a single changed value is patched by sifting it
+ * and swapping heap tops rather than by selecting over every slice again.
+ */
+final class PieSelection {
+	static final int OTHER = -2;
+
+	float[] values = new float[0];
+	private int count;
+	private int topSlices;
+	private float minSweepAngle;
+	private double total, otherTotal;
+
+	private boolean[] kept = new boolean[0];
+	private int[] positions = new int[0];
+	private int[] keptHeap = new int[0];
+	private int[] otherHeap = new int[0];
+	private int keptCount, otherCount;
+
+	private int[] displayIndices = new int[0];
+	private int displayCount;
+
+	/** Makes room for count values, which are then written to values. */
+	void ensureCapacity(int count) {
+		if (values.length >= count) return;
+		values = new float[count];
+		kept = new boolean[count];
+		positions = new int[count];
+		keptHeap = new int[count];
+		otherHeap = new int[count];
+		// One extra entry is reserved for the "Other" slice
+		displayIndices = new int[count + 1];
+	}
+
+	/**
+	 * Selects over the first count values, keeping the largest topSlices with a
+	 * sweep of at least minSweepAngle degrees. Pass 0 for both to keep all.
+	 */
+	void select(int count, int topSlices, float minSweepAngle) {
+		this.count = count;
+		this.topSlices = topSlices;
+		this.minSweepAngle = minSweepAngle;
+		total = 0;
+		for (int i = 0; i < count; i++) {
+			total += values[i];
+		}
+		keptCount = 0;
+		otherCount = 0;
+		otherTotal = 0;
+		displayCount = 0;
+		if (!isAggregating()) {
+			for (int i = 0; i < count; i++) {
+				displayIndices[displayCount++] = i;
+			}
+			return;
+		}
+
+		// Everything starts merged and the largest values are promoted from there
+		for (int i = 0; i < count; i++) {
+			kept[i] = false;
+			otherHeap[i] = i;
+			positions[i] = i;
+			otherTotal += values[i];
+		}
+		otherCount = count;
+		for (int i = count / 2 - 1; i >= 0; i--) {
+			siftDown(otherHeap, i, otherCount, true);
+		}
+		rebalance();
+		updateDisplayIndices();
+	}
+
+	/** Changes one value. Returns whether the slices on display changed. */
+	boolean update(int index, float value) {
+		final float old = values[index];
+		values[index] = value;
+		total += (double) value - old;
+		if (!isAggregating()) return false;
+		if (kept[index]) {
+			fix(keptHeap, positions[index], keptCount, false);
+		} else {
+			otherTotal += (double) value - old;
+			fix(otherHeap, positions[index], otherCount, true);
+		}
+		if (!rebalance()) return false;
+		updateDisplayIndices();
+		return true;
+	}
+
+	double getTotal() {
+		return total;
+	}
+
+	/** Value of the "Other" slice, valid while it is on display. */
+	double getOtherTotal() {
+		return otherTotal;
+	}
+
+	int getDisplayCount() {
+		return displayCount;
+	}
+
+	/** Slice index drawn at a position, or OTHER. */
+	int getDisplayIndex(int position) {
+		return displayIndices[position];
+	}
+
+	/** The slices merged into "Other", in slice order. */
+	int[] getOtherIndices() {
+		if (otherCount < 2) return new int[0];
+		int[] indices = new int[otherCount];
+		System.arraycopy(otherHeap, 0, indices, 0, otherCount);
+		Arrays.sort(indices);
+		return indices;
+	}
+
+	private boolean isAggregating() {
+		return topSlices > 0 || minSweepAngle > 0;
+	}
+
+	// Moves slices between the heaps until the kept ones are the largest
+	// topSlices at or above the threshold. Each move is O(log n) and only
+	// slices crossing the threshold or the smallest kept value move.
+	private boolean rebalance() {
+		final double threshold = total > 0 ? minSweepAngle / 360 * total : 0;
+		final int limit = topSlices > 0 ? topSlices : Integer.MAX_VALUE;
+		boolean changed = false;
+		while (true) {
+			if (keptCount > 0 && (keptCount > limit || values[keptHeap[0]] < threshold)) {
+				final int index = remove(keptHeap, 0, keptCount--, false);
+				kept[index] = false;
+				insert(otherHeap, index, otherCount++, true);
+				otherTotal += values[index];
+			} else if (otherCount > 0 && values[otherHeap[0]] >= threshold
+					&& (keptCount < limit || values[otherHeap[0]] > values[keptHeap[0]])) {
+				final int index = remove(otherHeap, 0, otherCount--, true);
+				kept[index] = true;
+				insert(keptHeap, index, keptCount++, false);
+				otherTotal -= values[index];
+			} else {
+				return changed;
+			}
+			changed = true;
+		}
+	}
+
+	// Kept slices in their original order, then "Other". A single merged slice
+	// is drawn as itself rather than as "Other".
+	private void updateDisplayIndices() {
+		System.arraycopy(keptHeap, 0, displayIndices, 0, keptCount);
+		displayCount = keptCount;
+		if (otherCount == 1) {
+			displayIndices[displayCount++] = otherHeap[0];
+		}
+		Arrays.sort(displayIndices, 0, displayCount);
+		if (otherCount > 1) {
+			displayIndices[displayCount++] = OTHER;
+		}
+	}
+
+	private boolean before(int a, int b, boolean max) {
+		return max ? values[a] > values[b] : values[a] < values[b];
+	}
+
+	private void insert(int[] heap, int index, int size, boolean max) {
+		heap[size] = index;
+		positions[index] = size;
+		siftUp(heap, size, max);
+	}
+
+	// Removes the entry at position from a heap of size entries
+	private int remove(int[] heap, int position, int size, boolean max) {
+		final int index = heap[position];
+		final int last = heap[size - 1];
+		if (position < size - 1) {
+			heap[position] = last;
+			positions[last] = position;
+			fix(heap, position, size - 1, max);
+		}
+		return index;
+	}
+
+	private void fix(int[] heap, int position, int size, boolean max) {
+		final int index = heap[position];
+		siftUp(heap, position, max);
+		siftDown(heap, positions[index], size, max);
+	}
+
+	private void siftUp(int[] heap, int position, boolean max) {
+		final int index = heap[position];
+		while (position > 0) {
+			final int parent = (position - 1) >>> 1;
+			if (!before(index, heap[parent], max)) break;
+			heap[position] = heap[parent];
+			positions[heap[position]] = position;
+			position = parent;
+		}
+		heap[position] = index;
+		positions[index] = position;
+	}
+
+	private void siftDown(int[] heap, int position, int size, boolean max) {
+		final int index = heap[position];
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= size) break;
+			if (child + 1 < size && before(heap[child + 1], heap[child], max)) child++;
+			if (!before(heap[child], index, max)) break;
+			heap[position] = heap[child];
+			positions[heap[position]] = position;
+			position = child;
+		}
+		heap[position] = index;
+		positions[index] = position;
+	}
+}
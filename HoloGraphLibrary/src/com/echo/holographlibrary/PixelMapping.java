@@ -0,0 +1,55 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+package com.echo.holographlibrary;
+
+/** How LineGraph maps data coordinates to pixels, as computed by drawGraph. */
+final class PixelMapping {
+	float minX, maxX, minY, maxY;
+	long timeBase;
+	float left, bottom, usableWidth, usableHeight;
+
+	double scaleX() {
+		return maxX > minX ? usableWidth / ((double) maxX - minX) : 0;
+	}
+
+	double scaleY() {
+		return maxY > minY ? usableHeight / ((double) maxY - minY) : 0;
+	}
+
+	/**
+	 * Adds the samples of a time series inside the x range, plus one on either
+	 * side to reach the edges, to polyline in pixels.
+	 */
+	void addTo(PolylineBuffer polyline, TimeSeries series) {
+		final double scaleX = scaleX();
+		final double scaleY = scaleY();
+		final int from = Math.max(0, series.lowerBound(timeBase + (long) Math.floor(minX)) - 1);
+		final int to = Math.min(series.size(), series.upperBound(timeBase + (long) Math.ceil(maxX)) + 1);
+		for (int i = from; i < to; i++) {
+			final double x = (series.getTime(i) - timeBase) - (double) minX;
+			final double y = series.getValue(i) - minY;
+			polyline.add((float) (left + x * scaleX), (float) (bottom - y * scaleY));
+		}
+	}
+}
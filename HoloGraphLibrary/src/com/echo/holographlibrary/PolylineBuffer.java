@@ -0,0 +1,123 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+package com.echo.holographlibrary;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+/**
+ * Collects a polyline given point by point in pixels and draws it with
+ * batched drawLines() calls. Consecutive points falling in the same pixel
+ * column are reduced to the column's first, lowest, highest and last point,
+ * so dense data costs at most a few segments per column.
+ */
+class PolylineBuffer {
+
+	private static final int CAPACITY = 1024;
+
+	private final float[] mVertices = new float[CAPACITY * 4];
+	private int mCount = 0;
+	private Canvas mCanvas;
+	private Paint mPaint;
+
+	private boolean mHasLast = false;
+	private float mLastX, mLastY;
+
+	private boolean mColumnOpen = false;
+	private int mColumn;
+	private float mColumnX;
+	private float mFirstY, mLowY, mHighY, mEndY;
+
+	void begin(Canvas canvas, Paint paint) {
+		mCanvas = canvas;
+		mPaint = paint;
+		mCount = 0;
+		mHasLast = false;
+		mColumnOpen = false;
+	}
+
+	void add(float x, float y) {
+		if (Float.isNaN(x) || Float.isNaN(y)) {
+			breakLine();
+			return;
+		}
+		final int column = (int) Math.floor(x);
+		if (mColumnOpen && column == mColumn) {
+			if (y < mLowY) mLowY = y;
+			if (y > mHighY) mHighY = y;
+			mEndY = y;
+			return;
+		}
+		flushColumn();
+		mColumnOpen = true;
+		mColumn = column;
+		mColumnX = x;
+		mFirstY = mLowY = mHighY = mEndY = y;
+	}
+
+	/** Leaves a gap between the previous point and the next one. */
+	void breakLine() {
+		flushColumn();
+		mHasLast = false;
+	}
+
+	void finish() {
+		flushColumn();
+		if (mCount > 0) {
+			mCanvas.drawLines(mVertices, 0, mCount, mPaint);
+			mCount = 0;
+		}
+		mCanvas = null;
+		mPaint = null;
+	}
+
+	private void flushColumn() {
+		if (!mColumnOpen) return;
+		mColumnOpen = false;
+		if (mCount + 8 > mVertices.length) {
+			mCanvas.drawLines(mVertices, 0, mCount, mPaint);
+			mCount = 0;
+		}
+		if (mHasLast) {
+			addSegment(mLastX, mLastY, mColumnX, mFirstY);
+		}
+		if (mHighY > mLowY) {
+			addSegment(mColumnX, mLowY, mColumnX, mHighY);
+		}
+		mLastX = mColumnX;
+		mLastY = mEndY;
+		mHasLast = true;
+	}
+
+	private void addSegment(float x0, float y0, float x1, float y1) {
+		mVertices[mCount++] = x0;
+		mVertices[mCount++] = y0;
+		mVertices[mCount++] = x1;
+		mVertices[mCount++] = y1;
+	}
+
+	long getByteCount() {
+		return 4L * mVertices.length;
+	}
+}
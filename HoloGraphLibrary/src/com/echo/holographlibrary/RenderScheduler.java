@@ -0,0 +1,246 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+package com.echo.holographlibrary;
+
+import java.util.ArrayList;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+/**
+ * Process-wide queue of graphs waiting to rebuild their cached image. Screens
+ * hosting many graphs can enable scheduled rendering on each of them so that a
+ * burst of data updates does not rebuild every graph within the same frame.
+ *
+ * Rebuilds run on the main thread at the start of a frame (driven by the
+ * Choreographer from Jelly Bean on, by a Handler before that) until the frame
+ * budget is spent; whatever is left waits for the following frames. Graphs
+ * visible on screen are rebuilt before hidden ones. At least one graph is
+ * rebuilt per frame so the queue always drains.
+ */
+public final class RenderScheduler {
+
+	private static final long FALLBACK_FRAME_MILLIS = 16;
+
+	private static RenderScheduler sInstance;
+
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	private final ArrayList<Task> mPending = new ArrayList<Task>();
+	// Tasks taken by the frame in progress, split by visibility once per frame
+	private final ArrayList<Task> mVisible = new ArrayList<Task>();
+	private final ArrayList<Task> mHidden = new ArrayList<Task>();
+	private int mHeldCount = 0;
+	private long mFrameBudgetNanos = 4000000;
+	private boolean mFramePosted = false;
+	private FrameDriver mFrameDriver;
+
+	/** A graph's cache rebuild, created once per graph. */
+	static abstract class Task {
+		private boolean mQueued = false;
+		// Held in the visible or hidden list of the frame in progress
+		private boolean mHeld = false;
+
+		abstract boolean isVisible();
+
+		abstract void rebuild();
+	}
+
+	private RenderScheduler() {
+	}
+
+	public static synchronized RenderScheduler getInstance() {
+		if (sInstance == null) {
+			sInstance = new RenderScheduler();
+		}
+		return sInstance;
+	}
+
+	/** Time in milliseconds that rebuilds may take at the start of each frame. */
+	public synchronized void setFrameBudget(long millis) {
+		mFrameBudgetNanos = millis * 1000000;
+	}
+
+	public synchronized long getFrameBudget() {
+		return mFrameBudgetNanos / 1000000;
+	}
+
+	public synchronized int getPendingCount() {
+		return mPending.size() + mHeldCount;
+	}
+
+	/** Queues a rebuild for the next frames. Safe to call from any thread. */
+	void schedule(Task task) {
+		synchronized (this) {
+			if (task.mQueued) return;
+			task.mQueued = true;
+			if (task.mHeld) {
+				// Still in the frame's lists, which run or requeue it
+				mHeldCount++;
+				return;
+			}
+			mPending.add(task);
+			if (mFramePosted) return;
+			mFramePosted = true;
+		}
+		mHandler.post(mPostFrame);
+	}
+
+	void cancel(Task task) {
+		synchronized (this) {
+			if (!task.mQueued) return;
+			task.mQueued = false;
+			if (task.mHeld) {
+				// Skipped when the frame reaches it
+				mHeldCount--;
+			} else {
+				mPending.remove(task);
+			}
+		}
+	}
+
+	// Choreographer instances are per thread, so frames are always requested from the main thread
+	private final Runnable mPostFrame = new Runnable() {
+		@Override
+		public void run() {
+			postFrame(0);
+		}
+	};
+
+	private final Runnable mFallbackFrame = new Runnable() {
+		@Override
+		public void run() {
+			doFrame();
+		}
+	};
+
+	private void postFrame(long fallbackDelay) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			if (mFrameDriver == null) {
+				mFrameDriver = new FrameDriver();
+			}
+			mFrameDriver.post();
+		} else {
+			mHandler.postDelayed(mFallbackFrame, fallbackDelay);
+		}
+	}
+
+	private void doFrame() {
+		final long deadline = System.nanoTime() + mFrameBudgetNanos;
+		takePending();
+		boolean rebuilt = false;
+		// Visible graphs first, then the hidden ones
+		int visible = 0, hidden = 0;
+		while (!rebuilt || System.nanoTime() < deadline) {
+			Task task;
+			if (visible < mVisible.size()) {
+				task = mVisible.get(visible++);
+			} else if (hidden < mHidden.size()) {
+				task = mHidden.get(hidden++);
+			} else {
+				break;
+			}
+			if (release(task)) {
+				task.rebuild();
+				rebuilt = true;
+			}
+		}
+
+		synchronized (this) {
+			requeue(mHidden, hidden);
+			requeue(mVisible, visible);
+			if (mPending.isEmpty()) {
+				mFramePosted = false;
+				return;
+			}
+		}
+		postFrame(FALLBACK_FRAME_MILLIS);
+	}
+
+	// Moves the pending tasks into the frame's lists, asking each task for its
+	// visibility once rather than on every poll
+	private void takePending() {
+		synchronized (this) {
+			mHidden.addAll(mPending);
+			mHeldCount = mPending.size();
+			mPending.clear();
+			for (int i = 0; i < mHidden.size(); i++) {
+				mHidden.get(i).mHeld = true;
+			}
+		}
+		// Visibility is read outside the lock; both lists are only touched here
+		int kept = 0;
+		for (int i = 0; i < mHidden.size(); i++) {
+			Task task = mHidden.get(i);
+			if (task.isVisible()) {
+				mVisible.add(task);
+			} else {
+				mHidden.set(kept++, task);
+			}
+		}
+		mHidden.subList(kept, mHidden.size()).clear();
+	}
+
+	// Takes a task off the frame's lists, returning whether it is still queued
+	private synchronized boolean release(Task task) {
+		task.mHeld = false;
+		if (!task.mQueued) return false;
+		// Unqueued before the rebuild so changes made meanwhile queue it again
+		task.mQueued = false;
+		mHeldCount--;
+		return true;
+	}
+
+	// Puts the tasks the frame did not reach back at the head of the queue, in
+	// their order, and empties the list
+	private void requeue(ArrayList<Task> tasks, int from) {
+		int kept = 0;
+		for (int i = from; i < tasks.size(); i++) {
+			Task task = tasks.get(i);
+			task.mHeld = false;
+			if (task.mQueued) {
+				tasks.set(kept++, task);
+				mHeldCount--;
+			}
+		}
+		tasks.subList(kept, tasks.size()).clear();
+		mPending.addAll(0, tasks);
+		tasks.clear();
+	}
+
+	// Kept in its own class so Choreographer is never loaded before Jelly Bean
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private class FrameDriver implements Choreographer.FrameCallback {
+		void post() {
+			Choreographer.getInstance().postFrameCallback(this);
+		}
+
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			RenderScheduler.this.doFrame();
+		}
+	}
+}
@@ -0,0 +1,322 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+
+package com.echo.holographlibrary;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Aggregates timestamped events into a ring of fixed time buckets (count,
+ * sum, min, max and approximate percentiles) covering a rolling window, for
+ * "events per minute over the last hour" style bar graphs.
+ *
+ * record() is lock-free and allocation-free so many producer threads can
+ * report without contending. Buckets are recycled in place as the window
+ * moves forward; an event racing with the recycling of its bucket at a
+ * bucket boundary may be lost.
+ *
+ * Percentiles are approximate over non-negative values: they are read from
+ * log-scale bins spanning 2^-8 to 2^24, four per power of two. Zero and
+ * negative values all fall in one bin that reports 0, so a percentile of data
+ * that goes below zero is clamped to 0. NaN values are rejected.
+ *
+ * getBarMatrix() exposes one statistic per bucket, oldest first, for
+ * BarGraph.setBarMatrix(). Call publish() or start() to keep it current.
+ */
+public class RollingAggregator {
+
+	public static final int STAT_COUNT = 0;
+	public static final int STAT_SUM = 1;
+	public static final int STAT_MIN = 2;
+	public static final int STAT_MAX = 3;
+	public static final int STAT_MEAN = 4;
+	public static final int STAT_PERCENTILE = 5;
+
+	// Log-scale percentile bins: SUB_BINS per power of two, starting at 2^-8
+	private static final int PERCENTILE_BINS = 128;
+	private static final int SUB_BINS = 4;
+	private static final int BIN_OFFSET = 8 * SUB_BINS;
+	private static final double LOG2 = Math.log(2);
+
+	private final long mBucketMillis;
+	private final int mBucketCount;
+
+	private final AtomicLongArray mEpochs;
+	private final AtomicLongArray mCounts;
+	private final AtomicLongArray mSums;
+	private final AtomicLongArray mMins;
+	private final AtomicLongArray mMaxes;
+	private final AtomicLongArray mPercentileCounts;
+	private final AtomicLong mLatestEpoch = new AtomicLong(Long.MIN_VALUE);
+
+	// Set from any thread and read by publish(), possibly on the main thread
+	private volatile int mStatistic = STAT_COUNT;
+	private volatile double mPercentile = 0.5;
+	private BarMatrix mMatrix;
+	private double[] mMatrixValues;
+	private Handler mHandler;
+	private boolean mPublishing = false;
+
+	public RollingAggregator(long bucketMillis, int bucketCount) {
+		if (bucketMillis <= 0 || bucketCount <= 0) {
+			throw new IllegalArgumentException("Invalid window of " + bucketCount + " x " + bucketMillis + "ms");
+		}
+		mBucketMillis = bucketMillis;
+		mBucketCount = bucketCount;
+		mEpochs = new AtomicLongArray(bucketCount);
+		mCounts = new AtomicLongArray(bucketCount);
+		mSums = new AtomicLongArray(bucketCount);
+		mMins = new AtomicLongArray(bucketCount);
+		mMaxes = new AtomicLongArray(bucketCount);
+		mPercentileCounts = new AtomicLongArray(bucketCount * PERCENTILE_BINS);
+		for (int i = 0; i < bucketCount; i++) {
+			mEpochs.set(i, Long.MIN_VALUE);
+			resetBucket(i);
+		}
+	}
+
+	public long getBucketMillis() {
+		return mBucketMillis;
+	}
+
+	public int getBucketCount() {
+		return mBucketCount;
+	}
+
+	/**
+	 * Records one event. Safe to call from any thread; never blocks or allocates.
+	 * Events older than the window are dropped.
+	 *
+	 * @throws IllegalArgumentException if value is NaN
+	 */
+	public void record(long timestampMillis, double value) {
+		if (Double.isNaN(value)) {
+			throw new IllegalArgumentException("NaN cannot be recorded");
+		}
+		final long epoch = floorDiv(timestampMillis, mBucketMillis);
+		final long latest = advanceLatest(epoch);
+		if (epoch <= latest - mBucketCount) return;
+
+		final int slot = slotOf(epoch);
+		long current = mEpochs.get(slot);
+		while (current != epoch) {
+			if (current > epoch) return;
+			if (mEpochs.compareAndSet(slot, current, epoch)) {
+				// This thread won the bucket for the new epoch and recycles it
+				resetBucket(slot);
+				break;
+			}
+			current = mEpochs.get(slot);
+		}
+
+		mCounts.incrementAndGet(slot);
+		addDouble(mSums, slot, value);
+		minDouble(mMins, slot, value);
+		maxDouble(mMaxes, slot, value);
+		mPercentileCounts.incrementAndGet(slot * PERCENTILE_BINS + percentileBin(value));
+	}
+
+	public void setStatistic(int statistic) {
+		if (statistic < STAT_COUNT || statistic > STAT_PERCENTILE) {
+			throw new IllegalArgumentException("Unknown statistic " + statistic);
+		}
+		mStatistic = statistic;
+	}
+
+	/** The percentile, between 0 and 1, reported by STAT_PERCENTILE. */
+	public void setPercentile(double percentile) {
+		mPercentile = Math.max(0, Math.min(1, percentile));
+	}
+
+	/**
+	 * Value of a statistic for a window position at the given time, where
+	 * position 0 is the oldest bucket and getBucketCount() - 1 the current one.
+	 * Empty buckets report 0.
+	 */
+	public double getValue(long nowMillis, int position, int statistic) {
+		final long epoch = floorDiv(nowMillis, mBucketMillis) - (mBucketCount - 1 - position);
+		final int slot = slotOf(epoch);
+		if (mEpochs.get(slot) != epoch) return 0;
+
+		final long count = mCounts.get(slot);
+		if (count == 0) return 0;
+		switch (statistic) {
+		case STAT_COUNT:
+			return count;
+		case STAT_SUM:
+			return Double.longBitsToDouble(mSums.get(slot));
+		case STAT_MIN:
+			return Double.longBitsToDouble(mMins.get(slot));
+		case STAT_MAX:
+			return Double.longBitsToDouble(mMaxes.get(slot));
+		case STAT_MEAN:
+			return Double.longBitsToDouble(mSums.get(slot)) / count;
+		case STAT_PERCENTILE:
+			return getPercentile(slot, mPercentile);
+		default:
+			throw new IllegalArgumentException("Unknown statistic " + statistic);
+		}
+	}
+
+	/**
+	 * A single-series matrix with one column per bucket, oldest first, holding
+	 * the selected statistic as of the last publish().
+	 */
+	public synchronized BarMatrix getBarMatrix() {
+		if (mMatrix == null) {
+			mMatrix = new BarMatrix(1, mBucketCount);
+			mMatrixValues = new double[mBucketCount];
+		}
+		return mMatrix;
+	}
+
+	/** Rolls the window to nowMillis and copies the selected statistic into the bar matrix. */
+	public synchronized void publish(long nowMillis) {
+		BarMatrix matrix = getBarMatrix();
+		for (int i = 0; i < mBucketCount; i++) {
+			mMatrixValues[i] = getValue(nowMillis, i, mStatistic);
+		}
+		matrix.setSeriesValues(0, mMatrixValues);
+	}
+
+	/** Publishes on the main thread once per bucket until stop() is called. */
+	public synchronized void start() {
+		if (mHandler == null) {
+			mHandler = new Handler(Looper.getMainLooper());
+		}
+		if (!mPublishing) {
+			mPublishing = true;
+			mHandler.post(mPublishRunnable);
+		}
+	}
+
+	public synchronized void stop() {
+		mPublishing = false;
+		if (mHandler != null) {
+			mHandler.removeCallbacks(mPublishRunnable);
+		}
+	}
+
+	private final Runnable mPublishRunnable = new Runnable() {
+		@Override
+		public void run() {
+			long now = System.currentTimeMillis();
+			publish(now);
+			synchronized (RollingAggregator.this) {
+				if (mPublishing) {
+					// Next publish lands just after the following bucket boundary
+					mHandler.postDelayed(this, mBucketMillis - floorMod(now, mBucketMillis) + 1);
+				}
+			}
+		}
+	};
+
+	private double getPercentile(int slot, double percentile) {
+		final int base = slot * PERCENTILE_BINS;
+		long total = 0;
+		for (int b = 0; b < PERCENTILE_BINS; b++) {
+			total += mPercentileCounts.get(base + b);
+		}
+		if (total == 0) return 0;
+
+		final long rank = (long) Math.ceil(percentile * total);
+		long seen = 0;
+		for (int b = 0; b < PERCENTILE_BINS; b++) {
+			seen += mPercentileCounts.get(base + b);
+			if (seen >= Math.max(rank, 1)) {
+				if (b == 0) return 0;
+				// Geometric middle of the bin
+				return Math.pow(2, (b - BIN_OFFSET + 0.5) / SUB_BINS);
+			}
+		}
+		return Double.longBitsToDouble(mMaxes.get(slot));
+	}
+
+	// Bin 0 holds zero and negative values, the rest are clamped to the range
+	private static int percentileBin(double value) {
+		if (value <= 0) return 0;
+		int bin = (int) Math.floor(Math.log(value) / LOG2 * SUB_BINS) + BIN_OFFSET;
+		return Math.max(1, Math.min(PERCENTILE_BINS - 1, bin));
+	}
+
+	private long advanceLatest(long epoch) {
+		long latest = mLatestEpoch.get();
+		while (epoch > latest) {
+			if (mLatestEpoch.compareAndSet(latest, epoch)) return epoch;
+			latest = mLatestEpoch.get();
+		}
+		return latest;
+	}
+
+	private void resetBucket(int slot) {
+		mCounts.set(slot, 0);
+		mSums.set(slot, Double.doubleToRawLongBits(0));
+		mMins.set(slot, Double.doubleToRawLongBits(Double.POSITIVE_INFINITY));
+		mMaxes.set(slot, Double.doubleToRawLongBits(Double.NEGATIVE_INFINITY));
+		final int base = slot * PERCENTILE_BINS;
+		for (int b = 0; b < PERCENTILE_BINS; b++) {
+			mPercentileCounts.set(base + b, 0);
+		}
+	}
+
+	private int slotOf(long epoch) {
+		return (int) floorMod(epoch, mBucketCount);
+	}
+
+	private static long floorDiv(long x, long y) {
+		long q = x / y;
+		return (x % y != 0 && (x ^ y) < 0) ? q - 1 : q;
+	}
+
+	private static long floorMod(long x, long y) {
+		return x - floorDiv(x, y) * y;
+	}
+
+	private static void addDouble(AtomicLongArray array, int index, double delta) {
+		long bits = array.get(index);
+		while (!array.compareAndSet(index, bits, Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + delta))) {
+			bits = array.get(index);
+		}
+	}
+
+	private static void minDouble(AtomicLongArray array, int index, double value) {
+		long bits = array.get(index);
+		while (value < Double.longBitsToDouble(bits)) {
+			if (array.compareAndSet(index, bits, Double.doubleToRawLongBits(value))) return;
+			bits = array.get(index);
+		}
+	}
+
+	private static void maxDouble(AtomicLongArray array, int index, double value) {
+		long bits = array.get(index);
+		while (value > Double.longBitsToDouble(bits)) {
+			if (array.compareAndSet(index, bits, Double.doubleToRawLongBits(value))) return;
+			bits = array.get(index);
+		}
+	}
+}
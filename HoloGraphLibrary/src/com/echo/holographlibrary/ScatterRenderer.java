@@ -0,0 +1,245 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+package com.echo.holographlibrary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+/**
+ * Draws the points of a LineGraph unconnected, for large point clouds. Points
+ * are batched into a reused buffer for drawPoints(), and a point landing on a
+ * pixel its line already covered is skipped using an occupancy bitset. The
+ * points actually drawn are bucketed into a grid of cells for nearest-point
+ * picking.
+ */
+class ScatterRenderer {
+
+	private static final int BATCH = 4096;
+	private static final int CELL = 32;
+
+	private final float[] mBatch = new float[BATCH * 2];
+	private int mBatchCount = 0;
+	private long[] mOccupied = new long[0];
+	private long[] mSeriesX = new long[0];
+	private float[] mSeriesY = new float[0];
+
+	private Canvas mCanvas;
+	private Paint mPaint;
+	private int mWidth, mHeight;
+	private int mLine;
+
+	// Drawn points and the grid index over them
+	private int mCount = 0;
+	private float[] mX = new float[0];
+	private float[] mY = new float[0];
+	private int[] mLines = new int[0];
+	private int[] mIndices = new int[0];
+	private int mColumns, mRows;
+	private int[] mCellStart = new int[0];
+	private int[] mCellFill = new int[0];
+	private int[] mOrder = new int[0];
+
+	void render(ArrayList<Line> lines, Canvas canvas, Paint paint, int width, int height, PixelMapping mapping) {
+		mCanvas = canvas;
+		mPaint = paint;
+		mWidth = width;
+		mHeight = height;
+		mCount = 0;
+		final int words = (width * height + 63) >>> 6;
+		if (mOccupied.length < words) {
+			mOccupied = new long[words];
+		}
+
+		final double scaleX = mapping.scaleX();
+		final double scaleY = mapping.scaleY();
+		for (int l = 0; l < lines.size(); l++) {
+			final Line line = lines.get(l);
+			if (!line.isVisible()) continue;
+			mLine = l;
+			paint.setColor(line.getColor());
+			Arrays.fill(mOccupied, 0, words, 0);
+
+			TimeSeries timeSeries = line.getTimeSeries();
+			CompressedSeries series = line.getSeries();
+			if (timeSeries != null) {
+				synchronized (timeSeries) {
+					final int from = timeSeries.lowerBound(mapping.timeBase + (long) Math.floor(mapping.minX));
+					final int to = timeSeries.upperBound(mapping.timeBase + (long) Math.ceil(mapping.maxX));
+					for (int i = from; i < to; i++) {
+						add((float) (mapping.left + ((timeSeries.getTime(i) - mapping.timeBase) - (double) mapping.minX) * scaleX),
+								(float) (mapping.bottom - (timeSeries.getValue(i) - mapping.minY) * scaleY), i);
+					}
+				}
+			} else if (series != null) {
+				if (series.size() == 0) continue;
+				final int blockSize = series.getBlockSize();
+				if (mSeriesX.length < blockSize) {
+					mSeriesX = new long[blockSize];
+					mSeriesY = new float[blockSize];
+				}
+				final int first = series.findBlock((long) Math.floor(mapping.minX));
+				final int last = series.findBlock((long) Math.ceil(mapping.maxX));
+				for (int b = first; b <= last; b++) {
+					final int count = series.decode(b, mSeriesX, mSeriesY);
+					for (int i = 0; i < count; i++) {
+						add((float) (mapping.left + (mSeriesX[i] - (double) mapping.minX) * scaleX),
+								(float) (mapping.bottom - (mSeriesY[i] - (double) mapping.minY) * scaleY), b * blockSize + i);
+					}
+				}
+			} else {
+				ArrayList<LinePoint> points = line.getPoints();
+				for (int i = 0; i < points.size(); i++) {
+					LinePoint point = points.get(i);
+					add((float) (mapping.left + (point.getX() - (double) mapping.minX) * scaleX),
+							(float) (mapping.bottom - (point.getY() - (double) mapping.minY) * scaleY), i);
+				}
+			}
+			flush();
+		}
+		mCanvas = null;
+		mPaint = null;
+		buildIndex();
+	}
+
+	private void add(float x, float y, int index) {
+		if (!(x >= 0 && x < mWidth && y >= 0 && y < mHeight)) return;
+		final int pixel = (int) y * mWidth + (int) x;
+		final long bit = 1L << (pixel & 63);
+		if ((mOccupied[pixel >>> 6] & bit) != 0) return;
+		mOccupied[pixel >>> 6] |= bit;
+
+		mBatch[mBatchCount * 2] = x;
+		mBatch[mBatchCount * 2 + 1] = y;
+		if (++mBatchCount == BATCH) {
+			flush();
+		}
+
+		if (mCount == mX.length) {
+			final int capacity = Math.max(1024, mCount * 2);
+			float[] xs = new float[capacity];
+			float[] ys = new float[capacity];
+			int[] lines = new int[capacity];
+			int[] indices = new int[capacity];
+			System.arraycopy(mX, 0, xs, 0, mCount);
+			System.arraycopy(mY, 0, ys, 0, mCount);
+			System.arraycopy(mLines, 0, lines, 0, mCount);
+			System.arraycopy(mIndices, 0, indices, 0, mCount);
+			mX = xs;
+			mY = ys;
+			mLines = lines;
+			mIndices = indices;
+		}
+		mX[mCount] = x;
+		mY[mCount] = y;
+		mLines[mCount] = mLine;
+		mIndices[mCount] = index;
+		mCount++;
+	}
+
+	private void flush() {
+		if (mBatchCount > 0) {
+			mCanvas.drawPoints(mBatch, 0, mBatchCount * 2, mPaint);
+			mBatchCount = 0;
+		}
+	}
+
+	// Counting sort of the drawn points into CELL x CELL pixel cells
+	private void buildIndex() {
+		mColumns = (mWidth + CELL - 1) / CELL;
+		mRows = (mHeight + CELL - 1) / CELL;
+		final int cells = mColumns * mRows;
+		if (mCellStart.length < cells + 1) {
+			mCellStart = new int[cells + 1];
+			mCellFill = new int[cells];
+		}
+		if (mOrder.length < mCount) {
+			mOrder = new int[mX.length];
+		}
+		Arrays.fill(mCellStart, 0, cells + 1, 0);
+		for (int i = 0; i < mCount; i++) {
+			mCellStart[cellOf(mX[i], mY[i]) + 1]++;
+		}
+		for (int c = 0; c < cells; c++) {
+			mCellStart[c + 1] += mCellStart[c];
+		}
+		System.arraycopy(mCellStart, 0, mCellFill, 0, cells);
+		for (int i = 0; i < mCount; i++) {
+			mOrder[mCellFill[cellOf(mX[i], mY[i])]++] = i;
+		}
+	}
+
+	private int cellOf(float x, float y) {
+		return ((int) y / CELL) * mColumns + (int) x / CELL;
+	}
+
+	/**
+	 * The drawn point nearest to (x, y) within maxDistance pixels, packed as
+	 * the line index in the high and the point index in the low 32 bits, or -1.
+	 */
+	long findNearest(float x, float y, float maxDistance) {
+		if (mCount == 0) return -1;
+		final int fromColumn = Math.max(0, (int) ((x - maxDistance) / CELL));
+		final int toColumn = Math.min(mColumns - 1, (int) ((x + maxDistance) / CELL));
+		final int fromRow = Math.max(0, (int) ((y - maxDistance) / CELL));
+		final int toRow = Math.min(mRows - 1, (int) ((y + maxDistance) / CELL));
+
+		float best = maxDistance * maxDistance;
+		int found = -1;
+		for (int row = fromRow; row <= toRow; row++) {
+			for (int column = fromColumn; column <= toColumn; column++) {
+				final int cell = row * mColumns + column;
+				for (int k = mCellStart[cell]; k < mCellStart[cell + 1]; k++) {
+					final int i = mOrder[k];
+					final float dx = mX[i] - x;
+					final float dy = mY[i] - y;
+					final float distance = dx * dx + dy * dy;
+					if (distance <= best) {
+						best = distance;
+						found = i;
+					}
+				}
+			}
+		}
+		return found < 0 ? -1 : ((long) mLines[found] << 32) | (mIndices[found] & 0xffffffffL);
+	}
+
+	long getByteCount() {
+		return 8L * mOccupied.length + 16L * mX.length + 4L * (mCellStart.length + mCellFill.length + mOrder.length) + 4L * mBatch.length;
+	}
+
+	void release() {
+		mOccupied = new long[0];
+		mX = new float[0];
+		mY = new float[0];
+		mLines = new int[0];
+		mIndices = new int[0];
+		mCellStart = new int[0];
+		mCellFill = new int[0];
+		mOrder = new int[0];
+		mCount = 0;
+	}
+}
@@ -0,0 +1,225 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+package com.echo.holographlibrary;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * Minimal inline line chart. Unlike LineGraph it keeps no bitmap, no hit
+ * geometry and no point markers, and does not handle touches: the series is
+ * decimated to at most one point per pixel column and drawn straight to the
+ * canvas, optionally over a band spanning each column's minimum and maximum.
+ *
+ * The values array is used as given rather than copied; call
+ * notifyDataChanged() after changing it in place. Decimation only runs when
+ * the data or the view size change, so drawing allocates nothing.
+ */
+public class SparklineGraph extends View {
+	
+	private float[] values = new float[0];
+	private int count = 0;
+	
+	private final Paint linePaint = new Paint();
+	private final Paint bandPaint = new Paint();
+	private boolean showBand = false;
+	private boolean rangeSet = false;
+	private float rangeMin, rangeMax;
+	
+	// Per column mean, minimum and maximum, NaN for columns without values
+	private float[] columnMean = new float[0];
+	private float[] columnMin = new float[0];
+	private float[] columnMax = new float[0];
+	private float[] lineVertices = new float[0];
+	private float[] bandVertices = new float[0];
+	private int lineVertexCount = 0;
+	private int bandVertexCount = 0;
+	
+	private boolean dirty = true;
+	private int builtWidth, builtHeight;
+	
+	public SparklineGraph(Context context) {
+		super(context);
+		init();
+	}
+	
+	public SparklineGraph(Context context, AttributeSet attrs) {
+		super(context, attrs);
+		init();
+	}
+	
+	private void init() {
+		float density = getResources().getDisplayMetrics().density;
+		linePaint.setAntiAlias(true);
+		linePaint.setStyle(Paint.Style.STROKE);
+		linePaint.setStrokeCap(Paint.Cap.ROUND);
+		linePaint.setStrokeWidth(1.5f * density);
+		linePaint.setColor(Color.parseColor("#33B5E5"));
+		bandPaint.setStyle(Paint.Style.STROKE);
+		bandPaint.setColor(Color.parseColor("#33B5E5"));
+		bandPaint.setAlpha(60);
+	}
+	
+	/** Shows the first count entries of values, evenly spaced along the x axis. */
+	public void setValues(float[] values, int count) {
+		this.values = values;
+		this.count = Math.min(count, values.length);
+		notifyDataChanged();
+	}
+	
+	public void notifyDataChanged() {
+		dirty = true;
+		invalidate();
+	}
+	
+	public void setLineColor(int color) {
+		linePaint.setColor(color);
+		invalidate();
+	}
+	
+	public void setBandColor(int color) {
+		bandPaint.setColor(color);
+		invalidate();
+	}
+	
+	public void setStrokeWidth(float pixels) {
+		linePaint.setStrokeWidth(pixels);
+		invalidate();
+	}
+	
+	public void setShowBand(boolean show) {
+		showBand = show;
+		invalidate();
+	}
+	
+	/** Fixes the value range mapped to the view height instead of fitting the data. */
+	public void setRange(float min, float max) {
+		rangeSet = true;
+		rangeMin = min;
+		rangeMax = max;
+		notifyDataChanged();
+	}
+	
+	public void clearRange() {
+		rangeSet = false;
+		notifyDataChanged();
+	}
+	
+	private void decimate() {
+		final int left = getPaddingLeft();
+		final int top = getPaddingTop();
+		final float width = getWidth() - left - getPaddingRight();
+		final float height = getHeight() - top - getPaddingBottom();
+		final int columns = Math.max(1, (int) width);
+		final int buckets = Math.min(count, columns);
+		
+		if (columnMean.length < buckets) {
+			columnMean = new float[buckets];
+			columnMin = new float[buckets];
+			columnMax = new float[buckets];
+			lineVertices = new float[Math.max(0, buckets - 1) * 4];
+			bandVertices = new float[buckets * 4];
+		}
+		
+		float min = Float.POSITIVE_INFINITY;
+		float max = Float.NEGATIVE_INFINITY;
+		for (int b = 0; b < buckets; b++) {
+			final int from = (int) ((long) b * count / buckets);
+			final int to = (int) ((long) (b + 1) * count / buckets);
+			float sum = 0, bucketMin = Float.POSITIVE_INFINITY, bucketMax = Float.NEGATIVE_INFINITY;
+			int n = 0;
+			for (int i = from; i < to; i++) {
+				float v = values[i];
+				if (Float.isNaN(v) || Float.isInfinite(v)) continue;
+				sum += v;
+				if (v < bucketMin) bucketMin = v;
+				if (v > bucketMax) bucketMax = v;
+				n++;
+			}
+			if (n == 0) {
+				columnMean[b] = columnMin[b] = columnMax[b] = Float.NaN;
+				continue;
+			}
+			columnMean[b] = sum / n;
+			columnMin[b] = bucketMin;
+			columnMax[b] = bucketMax;
+			if (bucketMin < min) min = bucketMin;
+			if (bucketMax > max) max = bucketMax;
+		}
+		if (rangeSet) {
+			min = rangeMin;
+			max = rangeMax;
+		}
+		final float span = max > min ? max - min : 1;
+		final float step = buckets > 1 ? width / (buckets - 1) : 0;
+		final float offset = buckets > 1 ? left : left + width / 2;
+		
+		lineVertexCount = 0;
+		bandVertexCount = 0;
+		float lastX = 0, lastY = Float.NaN;
+		for (int b = 0; b < buckets; b++) {
+			final float x = offset + b * step;
+			if (Float.isNaN(columnMean[b])) {
+				lastY = Float.NaN;
+				continue;
+			}
+			final float y = top + height - (columnMean[b] - min) / span * height;
+			if (!Float.isNaN(lastY)) {
+				lineVertices[lineVertexCount++] = lastX;
+				lineVertices[lineVertexCount++] = lastY;
+				lineVertices[lineVertexCount++] = x;
+				lineVertices[lineVertexCount++] = y;
+			}
+			lastX = x;
+			lastY = y;
+			
+			bandVertices[bandVertexCount++] = x;
+			bandVertices[bandVertexCount++] = top + height - (columnMin[b] - min) / span * height;
+			bandVertices[bandVertexCount++] = x;
+			bandVertices[bandVertexCount++] = top + height - (columnMax[b] - min) / span * height;
+		}
+		bandPaint.setStrokeWidth(Math.max(1, step));
+		
+		builtWidth = getWidth();
+		builtHeight = getHeight();
+		dirty = false;
+	}
+	
+	@Override
+	protected void onDraw(Canvas canvas) {
+		if (dirty || builtWidth != getWidth() || builtHeight != getHeight()) {
+			decimate();
+		}
+		if (showBand && bandVertexCount > 0) {
+			canvas.drawLines(bandVertices, 0, bandVertexCount, bandPaint);
+		}
+		if (lineVertexCount > 0) {
+			canvas.drawLines(lineVertices, 0, lineVertexCount, linePaint);
+		}
+	}
+}
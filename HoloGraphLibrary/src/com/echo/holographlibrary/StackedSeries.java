@@ -0,0 +1,215 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+package com.echo.holographlibrary;
+
+import java.util.Arrays;
+
+import android.graphics.Color;
+
+/**
+ * Series sharing one grid of x values, drawn by LineGraph as stacked bands.
+ * Next to the values it keeps the running total of every column, total s
+ * being the sum of series 0 to s, so appending a column or changing a value
+ * only touches the totals of that one column.
+ *
+ * x values must never decrease. Appends and updates are synchronized.
+ * Readers on other threads, LineGraph included, synchronize on the series
+ * while they read it.
+ */
+public class StackedSeries {
+
+	private final int mSeriesCount;
+	private final int[] mColors;
+	private float[] mX;
+	private float[][] mValues;
+	private float[][] mTotals;
+	private int mSize = 0;
+	private float mMinY = 0, mMaxY = 0;
+	private boolean mBoundsStale = false;
+
+	public StackedSeries(int seriesCount) {
+		this(seriesCount, 64);
+	}
+
+	public StackedSeries(int seriesCount, int capacity) {
+		if (seriesCount < 1) {
+			throw new IllegalArgumentException("At least one series is required");
+		}
+		mSeriesCount = seriesCount;
+		mColors = new int[seriesCount];
+		Arrays.fill(mColors, Color.GRAY);
+		mX = new float[Math.max(1, capacity)];
+		mValues = new float[seriesCount][mX.length];
+		mTotals = new float[seriesCount][mX.length];
+	}
+
+	/** Appends a column at x, with values holding one value per series. */
+	public synchronized void append(float x, float[] values) {
+		if (values.length < mSeriesCount) {
+			throw new IllegalArgumentException("Expected " + mSeriesCount + " values, got " + values.length);
+		}
+		if (mSize > 0 && x < mX[mSize - 1]) {
+			throw new IllegalArgumentException("x " + x + " precedes " + mX[mSize - 1]);
+		}
+		if (mSize == mX.length) {
+			mX = grow(mX, mSize);
+			for (int s = 0; s < mSeriesCount; s++) {
+				mValues[s] = grow(mValues[s], mSize);
+				mTotals[s] = grow(mTotals[s], mSize);
+			}
+		}
+		mX[mSize] = x;
+		float total = 0;
+		for (int s = 0; s < mSeriesCount; s++) {
+			mValues[s][mSize] = values[s];
+			total += values[s];
+			mTotals[s][mSize] = total;
+			include(total);
+		}
+		mSize++;
+	}
+
+	/** Changes one value, updating the totals of its column from that series up. */
+	public synchronized void set(int series, int index, float value) {
+		if (index < 0 || index >= mSize) {
+			throw new IndexOutOfBoundsException("Index " + index + ", size " + mSize);
+		}
+		mValues[series][index] = value;
+		float total = series == 0 ? 0 : mTotals[series - 1][index];
+		for (int s = series; s < mSeriesCount; s++) {
+			final float previous = mTotals[s][index];
+			total += mValues[s][index];
+			mTotals[s][index] = total;
+			// The old extreme may be gone, so the bounds are found again when asked for
+			if (previous == mMinY || previous == mMaxY) mBoundsStale = true;
+			include(total);
+		}
+	}
+
+	public synchronized void clear() {
+		mSize = 0;
+		mMinY = 0;
+		mMaxY = 0;
+		mBoundsStale = false;
+	}
+
+	private static float[] grow(float[] array, int size) {
+		float[] grown = new float[array.length * 2];
+		System.arraycopy(array, 0, grown, 0, size);
+		return grown;
+	}
+
+	private void include(float total) {
+		if (total < mMinY) mMinY = total;
+		if (total > mMaxY) mMaxY = total;
+	}
+
+	public int getSeriesCount() {
+		return mSeriesCount;
+	}
+
+	public int getColor(int series) {
+		return mColors[series];
+	}
+
+	public void setColor(int series, int color) {
+		mColors[series] = color;
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	public float getX(int index) {
+		return mX[index];
+	}
+
+	public float getValue(int series, int index) {
+		return mValues[series][index];
+	}
+
+	/** Top of the band of series at index: the sum of series 0 to series. */
+	public float getTotal(int series, int index) {
+		return mTotals[series][index];
+	}
+
+	/** Index of the first column at or after x, or size() if there is none. */
+	public int lowerBound(float x) {
+		int low = 0;
+		int high = mSize;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (mX[mid] < x) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/** Index of the first column after x, or size() if there is none. */
+	public int upperBound(float x) {
+		int low = 0;
+		int high = mSize;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (mX[mid] <= x) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/** Lowest total, or 0 if none is below the baseline. */
+	public synchronized float getMinY() {
+		updateBounds();
+		return mMinY;
+	}
+
+	/** Highest total, or 0 if none is above the baseline. */
+	public synchronized float getMaxY() {
+		updateBounds();
+		return mMaxY;
+	}
+
+	private void updateBounds() {
+		if (!mBoundsStale) return;
+		mMinY = 0;
+		mMaxY = 0;
+		for (int s = 0; s < mSeriesCount; s++) {
+			final float[] totals = mTotals[s];
+			for (int i = 0; i < mSize; i++) {
+				include(totals[i]);
+			}
+		}
+		mBoundsStale = false;
+	}
+
+	public synchronized long getByteCount() {
+		return 4L * mX.length * (1 + 2 * mSeriesCount);
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+package com.echo.holographlibrary;
+
+/**
+ * Series of (timestamp, value) samples in primitive arrays, with 64-bit
+ * millisecond timestamps and double values. Timestamps must never decrease,
+ * so any time range is found with two binary searches and only the samples
+ * inside it are ever visited.
+ *
+ * As a Line of a LineGraph the timestamps are drawn relative to the graph's
+ * time base, so epoch timestamps keep their full resolution. Old samples can
+ * be dropped with trimBefore() to keep a live window.
+ *
+ * Appends and trims are synchronized. Readers on other threads, LineGraph
+ * included, synchronize on the series while they read it.
+ */
+public class TimeSeries {
+
+	private long[] mTimes;
+	private double[] mValues;
+	private int mStart = 0;
+	private int mSize = 0;
+
+	public TimeSeries() {
+		this(64);
+	}
+
+	public TimeSeries(int capacity) {
+		mTimes = new long[Math.max(1, capacity)];
+		mValues = new double[Math.max(1, capacity)];
+	}
+
+	public synchronized void append(long time, double value) {
+		if (mSize > 0 && time < mTimes[mStart + mSize - 1]) {
+			throw new IllegalArgumentException("Timestamp " + time + " precedes " + mTimes[mStart + mSize - 1]);
+		}
+		if (mStart + mSize == mTimes.length) {
+			if (mStart > mTimes.length / 2) {
+				// Mostly trimmed: compact instead of growing
+				System.arraycopy(mTimes, mStart, mTimes, 0, mSize);
+				System.arraycopy(mValues, mStart, mValues, 0, mSize);
+			} else {
+				long[] times = new long[mTimes.length * 2];
+				double[] values = new double[mValues.length * 2];
+				System.arraycopy(mTimes, mStart, times, 0, mSize);
+				System.arraycopy(mValues, mStart, values, 0, mSize);
+				mTimes = times;
+				mValues = values;
+			}
+			mStart = 0;
+		}
+		mTimes[mStart + mSize] = time;
+		mValues[mStart + mSize] = value;
+		mSize++;
+	}
+
+	/** Drops every sample older than time. */
+	public synchronized void trimBefore(long time) {
+		final int index = lowerBound(time);
+		mStart += index;
+		mSize -= index;
+	}
+
+	public synchronized void clear() {
+		mStart = 0;
+		mSize = 0;
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	public long getTime(int index) {
+		return mTimes[mStart + index];
+	}
+
+	public double getValue(int index) {
+		return mValues[mStart + index];
+	}
+
+	/** Index of the first sample at or after time, or size() if there is none. */
+	public int lowerBound(long time) {
+		int low = mStart;
+		int high = mStart + mSize;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (mTimes[mid] < time) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low - mStart;
+	}
+
+	/** Index of the first sample after time, or size() if there is none. */
+	public int upperBound(long time) {
+		int low = mStart;
+		int high = mStart + mSize;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (mTimes[mid] <= time) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low - mStart;
+	}
+
+	/** Index of the sample nearest to time, or -1 if the series is empty. */
+	public int findNearest(double time) {
+		final int size = mSize;
+		int i = lowerBound((long) Math.ceil(time));
+		if (i == size || (i > 0 && time - getTime(i - 1) < getTime(i) - time)) i--;
+		return i;
+	}
+
+	/**
+	 * The samples from fromTime to toTime inclusive. The window refers to the
+	 * series' indices, so it is only valid until the series is next trimmed.
+	 */
+	public synchronized Window range(long fromTime, long toTime) {
+		final int start = lowerBound(fromTime);
+		return new Window(this, start, Math.max(start, upperBound(toTime)));
+	}
+
+	public static final class Window {
+		private final TimeSeries mSeries;
+		private final int mStart;
+		private final int mEnd;
+
+		Window(TimeSeries series, int start, int end) {
+			mSeries = series;
+			mStart = start;
+			mEnd = end;
+		}
+
+		/** Index in the series of the window's first sample. */
+		public int getStart() {
+			return mStart;
+		}
+
+		/** Index in the series just past the window's last sample. */
+		public int getEnd() {
+			return mEnd;
+		}
+
+		public int size() {
+			return mEnd - mStart;
+		}
+
+		public long getTime(int index) {
+			return mSeries.getTime(mStart + index);
+		}
+
+		public double getValue(int index) {
+			return mSeries.getValue(mStart + index);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.echo.holographlibrary;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BarGraph layout over a BarMatrix with one series per line: laying out the
+ * columns of the visible window at a scroll position, hit testing touches,
+ * and changing one cell with the graph maximum kept up to date.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BarLayoutBenchmark {
+
+	private static final float MIN_SLOT_WIDTH = 24;
+	private static final int TOUCHES = 64;
+
+	@Param({"1000", "100000", "10000000"})
+	public int points;
+
+	@Param({"1", "4"})
+	public int lines;
+
+	private BarMatrix mMatrix;
+	private BarLayout mLayout;
+	private final Random mRandom = new Random(42);
+	private int mCell;
+
+	@Setup
+	public void setUp() {
+		mMatrix = new BarMatrix(lines, points);
+		for (int s = 0; s < lines; s++) {
+			double[] values = new double[points];
+			for (int c = 0; c < points; c++) {
+				values[c] = mRandom.nextDouble() * 100;
+			}
+			mMatrix.setSeriesValues(s, values);
+		}
+		final BarMatrix matrix = mMatrix;
+		mLayout = new BarLayout() {
+			@Override
+			double getValue(int index) {
+				return matrix.getColumnValue(index);
+			}
+		};
+		mLayout.count = points;
+		mLayout.viewWidth = Samples.WIDTH;
+		mLayout.padding = 4;
+		mLayout.slot = BarLayout.getSlotWidth(Samples.WIDTH, points, MIN_SLOT_WIDTH);
+		mLayout.barWidth = mLayout.slot - 2 * mLayout.padding;
+		mLayout.baseline = Samples.HEIGHT - 40;
+		mLayout.usableHeight = Samples.HEIGHT - 80;
+		mLayout.max = mMatrix.getMaxValue();
+	}
+
+	private void scrollRandomly() {
+		final float maxScroll = BarLayout.getMaxScrollOffset(mLayout.slot, points, Samples.WIDTH);
+		mLayout.scrollOffset = mRandom.nextFloat() * maxScroll;
+	}
+
+	@Benchmark
+	public int layoutVisible() {
+		scrollRandomly();
+		int result = 0;
+		final int last = mLayout.getLastVisible();
+		for (int i = mLayout.getFirstVisible(); i <= last; i++) {
+			result += mLayout.getLeft(i) + mLayout.getTop(i) + mLayout.getRight(i) + mLayout.getBottom();
+		}
+		return result;
+	}
+
+	@Benchmark
+	public int hitTest() {
+		scrollRandomly();
+		int result = 0;
+		for (int t = 0; t < TOUCHES; t++) {
+			result += mLayout.findColumnAt(mRandom.nextFloat() * Samples.WIDTH,
+					mRandom.nextFloat() * Samples.HEIGHT, 4);
+		}
+		return result;
+	}
+
+	@Benchmark
+	public double setValue() {
+		mCell = (mCell + 7919) % points;
+		mMatrix.setValue(mCell % lines, mCell, mRandom.nextDouble() * 100);
+		return mMatrix.getMaxValue();
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.echo.holographlibrary;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * CompressedSeries: appending, the bounds LineGraph takes from the block
+ * headers, decoding whole series or only the blocks of a viewport, and the
+ * nearest sample lookups of scrubbing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CompressedSeriesBenchmark {
+
+	private static final int TOUCHES = 64;
+
+	@Param({"1000", "100000", "10000000"})
+	public int points;
+
+	@Param({"1", "4"})
+	public int lines;
+
+	private CompressedSeries[] mSeries;
+	private float[] mValues;
+	private long[] mDecodedX;
+	private float[] mDecodedY;
+	private final Bounds mBounds = new Bounds();
+
+	@Setup
+	public void setUp() {
+		mValues = Samples.randomWalk(points, new Random(42));
+		mSeries = new CompressedSeries[lines];
+		for (int l = 0; l < lines; l++) {
+			mSeries[l] = build(mValues);
+		}
+		mDecodedX = new long[mSeries[0].getBlockSize()];
+		mDecodedY = new float[mSeries[0].getBlockSize()];
+	}
+
+	private static CompressedSeries build(float[] values) {
+		CompressedSeries series = new CompressedSeries();
+		for (int i = 0; i < values.length; i++) {
+			series.append(i * 10L, values[i]);
+		}
+		return series;
+	}
+
+	@Benchmark
+	public CompressedSeries append() {
+		return build(mValues);
+	}
+
+	@Benchmark
+	public float bounds() {
+		final Bounds bounds = mBounds;
+		bounds.reset();
+		for (int l = 0; l < lines; l++) {
+			bounds.include(mSeries[l]);
+		}
+		return bounds.minX + bounds.maxX + bounds.minY + bounds.maxY;
+	}
+
+	@Benchmark
+	public void decodeAll(Blackhole bh) {
+		for (int l = 0; l < lines; l++) {
+			CompressedSeries series = mSeries[l];
+			for (int b = 0; b < series.getBlockCount(); b++) {
+				bh.consume(series.decode(b, mDecodedX, mDecodedY));
+			}
+		}
+	}
+
+	// The last tenth of every line, as a scrolled viewport would show it
+	@Benchmark
+	public void decodeViewport(Blackhole bh) {
+		final long from = points * 9L;
+		final long to = points * 10L;
+		for (int l = 0; l < lines; l++) {
+			CompressedSeries series = mSeries[l];
+			final int last = series.findBlock(to);
+			for (int b = series.findBlock(from); b <= last; b++) {
+				bh.consume(series.decode(b, mDecodedX, mDecodedY));
+			}
+		}
+	}
+
+	// A scrub across the graph, finding the nearest sample of every line at
+	// each touch
+	@Benchmark
+	public int hitTest() {
+		int result = 0;
+		for (int t = 0; t < TOUCHES; t++) {
+			final double x = (points - 1) * 10.0 * (t + 0.5) / TOUCHES;
+			for (int l = 0; l < lines; l++) {
+				result += mSeries[l].findNearest(x, mDecodedX, mDecodedY);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.echo.holographlibrary;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Histogram: choosing bins for a batch and binning it, which runs in
+ * parallel for large batches, and binning into existing bins.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class HistogramBenchmark {
+
+	@Param({"1000", "100000", "10000000"})
+	public int points;
+
+	private double[] mSamples;
+	private Histogram mHistogram;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		mSamples = new double[points];
+		for (int i = 0; i < points; i++) {
+			mSamples[i] = random.nextGaussian() * 10;
+		}
+		mHistogram = new Histogram(-50, 50, 100);
+	}
+
+	@Benchmark
+	public Histogram fromSamples() {
+		return Histogram.fromSamples(mSamples);
+	}
+
+	@Benchmark
+	public long addSamples() {
+		mHistogram.clear();
+		mHistogram.addSamples(mSamples);
+		return mHistogram.getCount(50);
+	}
+}
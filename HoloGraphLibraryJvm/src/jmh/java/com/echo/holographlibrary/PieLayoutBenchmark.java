@@ -0,0 +1,102 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.echo.holographlibrary;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PieGraph geometry: the sweep of every slice from the values, as rebuilt
+ * whenever a value changes, and hit testing touches against the ring.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PieLayoutBenchmark {
+
+	private static final float RADIUS = 300;
+	private static final float INNER_RADIUS = 150;
+	private static final int TOUCHES = 64;
+
+	@Param({"1000", "100000", "10000000"})
+	public int points;
+
+	private float[] mValues;
+	private float[] mStartAngles;
+	private float[] mSweepAngles;
+	private final Random mRandom = new Random(42);
+
+	@Setup
+	public void setUp() {
+		mValues = new float[points];
+		for (int i = 0; i < points; i++) {
+			mValues[i] = mRandom.nextFloat() * 100;
+		}
+		mStartAngles = new float[points];
+		mSweepAngles = new float[points];
+		sweeps();
+	}
+
+	@Benchmark
+	public float sweeps() {
+		double total = 0;
+		for (int i = 0; i < points; i++) {
+			total += mValues[i];
+		}
+		float angle = PieLayout.START_ANGLE;
+		for (int i = 0; i < points; i++) {
+			final float sweep = PieLayout.getSweepAngle(mValues[i], total);
+			mStartAngles[i] = angle;
+			mSweepAngles[i] = sweep;
+			angle += sweep;
+		}
+		return angle;
+	}
+
+	@Benchmark
+	public int hitTest() {
+		int result = 0;
+		for (int t = 0; t < TOUCHES; t++) {
+			final double angle = mRandom.nextDouble() * 2 * Math.PI;
+			final double distance = INNER_RADIUS + mRandom.nextDouble() * (RADIUS - INNER_RADIUS);
+			result += PieLayout.findSlice((float) (Math.cos(angle) * distance), (float) (Math.sin(angle) * distance),
+					RADIUS, INNER_RADIUS, mStartAngles, mSweepAngles, points);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.echo.holographlibrary;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * PieGraph's "Other" aggregation: selecting the top slices over every value,
+ * as a rebuild does, against patching the selection for one changed value,
+ * as PieGraph.updateSlice does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PieSelectionBenchmark {
+
+	private static final int TOP_SLICES = 10;
+
+	@Param({"1000", "100000", "10000000"})
+	public int points;
+
+	private final PieSelection mSelection = new PieSelection();
+	private final Random mRandom = new Random(42);
+
+	@Setup
+	public void setUp() {
+		mSelection.ensureCapacity(points);
+		for (int i = 0; i < points; i++) {
+			mSelection.values[i] = mRandom.nextFloat() * 100;
+		}
+		mSelection.select(points, TOP_SLICES, 0);
+	}
+
+	@Benchmark
+	public int select() {
+		mSelection.select(points, TOP_SLICES, 0);
+		return mSelection.getDisplayCount();
+	}
+
+	@Benchmark
+	public boolean update() {
+		return mSelection.update(mRandom.nextInt(points), mRandom.nextFloat() * 100);
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.echo.holographlibrary;
+
+import java.util.Random;
+
+/** Benchmark data. */
+final class Samples {
+
+	static final int WIDTH = 1080;
+	static final int HEIGHT = 720;
+
+	private Samples() {
+	}
+
+	/** A random walk starting at 0, like a sensor reading. */
+	static float[] randomWalk(int count, Random random) {
+		float[] values = new float[count];
+		float value = 0;
+		for (int i = 0; i < count; i++) {
+			value += (float) random.nextGaussian();
+			values[i] = value;
+		}
+		return values;
+	}
+
+	/** A mapping of the given ranges onto a WIDTH x HEIGHT view. */
+	static PixelMapping mapping(float minX, float maxX, float minY, float maxY) {
+		PixelMapping mapping = new PixelMapping();
+		mapping.minX = minX;
+		mapping.maxX = maxX;
+		mapping.minY = minY;
+		mapping.maxY = maxY;
+		mapping.left = 0;
+		mapping.bottom = HEIGHT;
+		mapping.usableWidth = WIDTH;
+		mapping.usableHeight = HEIGHT;
+		return mapping;
+	}
+}
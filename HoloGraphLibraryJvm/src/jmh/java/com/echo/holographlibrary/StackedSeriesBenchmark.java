@@ -0,0 +1,106 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.echo.holographlibrary;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * StackedSeries with one series per line: appending columns, changing one
+ * value, and the bounds rescan after the extreme total was lowered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StackedSeriesBenchmark {
+
+	@Param({"1000", "100000", "10000000"})
+	public int points;
+
+	@Param({"1", "4"})
+	public int lines;
+
+	private StackedSeries mSeries;
+	private float[][] mColumns;
+	private int mIndex;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		mColumns = new float[points][];
+		for (int i = 0; i < points; i++) {
+			float[] column = new float[lines];
+			for (int s = 0; s < lines; s++) {
+				column[s] = random.nextFloat() * 100;
+			}
+			mColumns[i] = column;
+		}
+		mSeries = build(mColumns, lines);
+	}
+
+	private static StackedSeries build(float[][] columns, int lines) {
+		StackedSeries series = new StackedSeries(lines);
+		for (int i = 0; i < columns.length; i++) {
+			series.append(i, columns[i]);
+		}
+		return series;
+	}
+
+	@Benchmark
+	public StackedSeries append() {
+		return build(mColumns, lines);
+	}
+
+	@Benchmark
+	public float set() {
+		mIndex = (mIndex + 7919) % points;
+		mSeries.set(0, mIndex, mColumns[mIndex][0]);
+		return mSeries.getTotal(lines - 1, mIndex);
+	}
+
+	// Raising and restoring the bottom value of a column makes the maximum stale
+	@Benchmark
+	public float rescanBounds() {
+		mIndex = (mIndex + 7919) % points;
+		mSeries.set(0, mIndex, 1000);
+		mSeries.getMaxY();
+		mSeries.set(0, mIndex, mColumns[mIndex][0]);
+		return mSeries.getMaxY();
+	}
+}
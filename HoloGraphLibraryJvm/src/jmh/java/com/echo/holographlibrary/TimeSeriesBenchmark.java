@@ -0,0 +1,147 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.echo.holographlibrary;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+/**
+ * TimeSeries: appending, LineGraph's full bounds scan and binary searched
+ * window, its projection of every sample into a PolylineBuffer, which reduces
+ * them to a few segments per pixel column, and the nearest sample lookups of
+ * scrubbing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TimeSeriesBenchmark {
+
+	private static final long TIME_BASE = 1400000000000L;
+	private static final int TOUCHES = 64;
+
+	@Param({"1000", "100000", "10000000"})
+	public int points;
+
+	@Param({"1", "4"})
+	public int lines;
+
+	private TimeSeries[] mSeries;
+	private float[] mValues;
+	private PixelMapping mMapping;
+	private final Bounds mBounds = new Bounds();
+	private final PolylineBuffer mPolyline = new PolylineBuffer();
+	private final Canvas mCanvas = new Canvas();
+	private final Paint mPaint = new Paint();
+
+	@Setup
+	public void setUp() {
+		mValues = Samples.randomWalk(points, new Random(42));
+		mSeries = new TimeSeries[lines];
+		for (int l = 0; l < lines; l++) {
+			mSeries[l] = build(mValues);
+		}
+		float minY = Float.POSITIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+		for (float value : mValues) {
+			minY = Math.min(minY, value);
+			maxY = Math.max(maxY, value);
+		}
+		mMapping = Samples.mapping(0, points - 1, minY, maxY);
+		mMapping.timeBase = TIME_BASE;
+	}
+
+	private static TimeSeries build(float[] values) {
+		TimeSeries series = new TimeSeries();
+		for (int i = 0; i < values.length; i++) {
+			series.append(TIME_BASE + i, values[i]);
+		}
+		return series;
+	}
+
+	@Benchmark
+	public TimeSeries append() {
+		return build(mValues);
+	}
+
+	@Benchmark
+	public float bounds() {
+		final Bounds bounds = mBounds;
+		bounds.reset();
+		for (int l = 0; l < lines; l++) {
+			bounds.include(mSeries[l], TIME_BASE, 0, mSeries[l].size());
+		}
+		return bounds.minX + bounds.maxX + bounds.minY + bounds.maxY;
+	}
+
+	// The window of the last tenth of every line
+	@Benchmark
+	public int window() {
+		int result = 0;
+		for (int l = 0; l < lines; l++) {
+			TimeSeries series = mSeries[l];
+			result += series.upperBound(TIME_BASE + points) - series.lowerBound(TIME_BASE + points * 9L / 10);
+		}
+		return result;
+	}
+
+	@Benchmark
+	public void toPixels() {
+		for (int l = 0; l < lines; l++) {
+			mPolyline.begin(mCanvas, mPaint);
+			mMapping.addTo(mPolyline, mSeries[l]);
+			mPolyline.finish();
+		}
+	}
+
+	// A scrub across the graph, finding the nearest sample of every line at
+	// each touch
+	@Benchmark
+	public int hitTest() {
+		int result = 0;
+		for (int t = 0; t < TOUCHES; t++) {
+			final double time = TIME_BASE + (points - 1) * (t + 0.5) / TOUCHES;
+			for (int l = 0; l < lines; l++) {
+				result += mSeries[l].findNearest(time);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package android.graphics;
+
+/**
+ * Stand-in for the Android class, for running the library code on a plain JVM.
+ * Nothing is drawn; the calls are counted instead, so tests can put bounds on
+ * the drawing work.
+ */
+public class Canvas {
+
+	private int mDrawCalls = 0;
+	private int mLineSegments = 0;
+
+	public void drawLines(float[] pts, int offset, int count, Paint paint) {
+		mDrawCalls++;
+		mLineSegments += count / 4;
+	}
+
+	/** Draw calls made since the last reset(). */
+	public int getDrawCallCount() {
+		return mDrawCalls;
+	}
+
+	/** Line segments drawn since the last reset(). */
+	public int getLineSegmentCount() {
+		return mLineSegments;
+	}
+
+	public void reset() {
+		mDrawCalls = 0;
+		mLineSegments = 0;
+	}
+}
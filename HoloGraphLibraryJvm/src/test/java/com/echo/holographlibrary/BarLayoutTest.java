@@ -0,0 +1,112 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.echo.holographlibrary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BarLayoutTest {
+
+	private static final int WIDTH = 1080;
+	private static final int BARS = 500;
+
+	private final double[] mValues = new double[BARS];
+	private final BarLayout mLayout = new BarLayout() {
+		@Override
+		double getValue(int index) {
+			return mValues[index];
+		}
+	};
+
+	@Before
+	public void setUp() {
+		for (int i = 0; i < BARS; i++) {
+			mValues[i] = 10 + i % 90;
+		}
+		mLayout.count = BARS;
+		mLayout.viewWidth = WIDTH;
+		mLayout.padding = 4;
+		mLayout.slot = BarLayout.getSlotWidth(WIDTH, BARS, 24);
+		mLayout.barWidth = mLayout.slot - 2 * mLayout.padding;
+		mLayout.baseline = 680;
+		mLayout.usableHeight = 640;
+		mLayout.max = 100;
+	}
+
+	@Test
+	public void scrollsWhenTheBarsDoNotFit() {
+		assertEquals(24, mLayout.slot, 0);
+		assertEquals(24 * BARS - WIDTH, BarLayout.getMaxScrollOffset(mLayout.slot, BARS, WIDTH), 0);
+		assertEquals(2, BarLayout.getSlotWidth(WIDTH, BARS, 0), 0);
+		assertEquals(0, BarLayout.getSlotWidth(WIDTH, 0, 24), 0);
+	}
+
+	// Only the columns inside the window are laid out and drawn
+	@Test
+	public void laysOutTheVisibleWindowOnly() {
+		mLayout.scrollOffset = 2400;
+		assertEquals(100, mLayout.getFirstVisible());
+		assertEquals(145, mLayout.getLastVisible());
+		assertTrue(mLayout.getLastVisible() - mLayout.getFirstVisible() + 1 <= WIDTH / 24 + 1);
+		assertEquals(4, mLayout.getLeft(100));
+		assertEquals(20, mLayout.getRight(100));
+		assertEquals(680 - 128, mLayout.getTop(100));
+		assertEquals(680, mLayout.getBottom());
+
+		mLayout.scrollOffset = 24 * BARS - WIDTH;
+		assertEquals(BARS - 1, mLayout.getLastVisible());
+	}
+
+	@Test
+	public void hitsTheBarUnderATouch() {
+		mLayout.scrollOffset = 1000;
+		for (int i = mLayout.getFirstVisible(); i <= mLayout.getLastVisible(); i++) {
+			final int left = mLayout.getLeft(i);
+			final int right = mLayout.getRight(i);
+			if (right <= 0 || left >= WIDTH) continue;
+			assertEquals(i, mLayout.findColumnAt((left + right) / 2, 675, 4));
+			assertEquals(-1, mLayout.findColumnAt((left + right) / 2, mLayout.getTop(i) - 10, 4));
+		}
+		// The slop reaches into the padding between bars
+		assertEquals(50, mLayout.findColumnAt(mLayout.getRight(50) + 2, 675, 4));
+		assertEquals(-1, mLayout.findColumnAt(mLayout.getRight(50) + 2, 675, 0));
+	}
+
+	// A press and release resolve the touched bar twice; neither may allocate
+	@Test
+	public void touchesDoNotAllocate() {
+		for (int i = 0; i < 1000; i++) {
+			mLayout.findColumnAt(i % WIDTH, 675, 4);
+		}
+		final long before = Allocations.current();
+		int hits = 0;
+		for (int i = 0; i < 100000; i++) {
+			hits += mLayout.findColumnAt(i % WIDTH, 675, 4);
+		}
+		assertTrue(Allocations.current() - before < Allocations.SLACK);
+		assertTrue(hits > 0);
+	}
+}
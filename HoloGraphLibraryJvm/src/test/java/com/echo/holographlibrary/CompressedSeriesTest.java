@@ -0,0 +1,146 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.echo.holographlibrary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CompressedSeriesTest {
+
+	@Test
+	public void decodesWhatWasAppended() {
+		CompressedSeries series = new CompressedSeries(16);
+		Random random = new Random(1);
+		final int count = 1000;
+		long[] xs = new long[count];
+		float[] ys = new float[count];
+		long x = -5000;
+		for (int i = 0; i < count; i++) {
+			// Regular steps with jumps hitting every delta-of-delta bucket
+			x += i % 50 == 0 ? random.nextInt(1 << 20) : i % 7 == 0 ? random.nextInt(3000) : 10;
+			xs[i] = x;
+			ys[i] = i % 13 == 0 ? ys[Math.max(0, i - 1)] : (float) random.nextGaussian() * 1000;
+			series.append(xs[i], ys[i]);
+		}
+		assertEquals(count, series.size());
+		assertEquals((count + 15) / 16, series.getBlockCount());
+
+		long[] decodedX = new long[16];
+		float[] decodedY = new float[16];
+		int index = 0;
+		for (int b = 0; b < series.getBlockCount(); b++) {
+			final int decoded = series.decode(b, decodedX, decodedY);
+			assertEquals(series.getBlockSampleCount(b), decoded);
+			for (int i = 0; i < decoded; i++, index++) {
+				assertEquals(xs[index], decodedX[i]);
+				assertEquals(Float.floatToRawIntBits(ys[index]), Float.floatToRawIntBits(decodedY[i]));
+			}
+		}
+		assertEquals(count, index);
+	}
+
+	@Test
+	public void findsTheNearestSampleAcrossBlocks() {
+		CompressedSeries series = new CompressedSeries(16);
+		long[] xs = new long[16];
+		float[] ys = new float[16];
+		assertEquals(-1, series.findNearest(0, xs, ys));
+		for (int i = 0; i < 100; i++) {
+			series.append(i * 10L, i);
+		}
+		assertEquals(0, series.findNearest(-5, xs, ys));
+		assertEquals(1, series.findNearest(14, xs, ys));
+		assertEquals(10, xs[0]);
+		// Nearer to the first sample of the next block than the last of its own
+		assertEquals(16, series.findNearest(156, xs, ys));
+		assertEquals(160, xs[0]);
+		assertEquals(16, ys[0], 0);
+		assertEquals(99, series.findNearest(5000, xs, ys));
+	}
+
+	@Test
+	public void blockHeadersMatchTheDecodedSamples() {
+		CompressedSeries series = new CompressedSeries(32);
+		Random random = new Random(2);
+		for (int i = 0; i < 1000; i++) {
+			series.append(i, (float) random.nextGaussian());
+		}
+
+		long[] xs = new long[32];
+		float[] ys = new float[32];
+		float min = Float.POSITIVE_INFINITY, max = Float.NEGATIVE_INFINITY;
+		for (int b = 0; b < series.getBlockCount(); b++) {
+			final int count = series.decode(b, xs, ys);
+			float blockMin = Float.POSITIVE_INFINITY, blockMax = Float.NEGATIVE_INFINITY;
+			for (int i = 0; i < count; i++) {
+				blockMin = Math.min(blockMin, ys[i]);
+				blockMax = Math.max(blockMax, ys[i]);
+			}
+			assertEquals(blockMin, series.getBlockMinY(b), 0);
+			assertEquals(blockMax, series.getBlockMaxY(b), 0);
+			assertEquals(ys[0], series.getBlockFirstY(b), 0);
+			assertEquals(ys[count - 1], series.getBlockLastY(b), 0);
+			assertEquals(xs[0], series.getBlockFirstX(b));
+			assertEquals(xs[count - 1], series.getBlockLastX(b));
+			min = Math.min(min, blockMin);
+			max = Math.max(max, blockMax);
+		}
+		assertEquals(min, series.getMinY(), 0);
+		assertEquals(max, series.getMaxY(), 0);
+		assertEquals(0, series.getMinX());
+		assertEquals(999, series.getMaxX());
+	}
+
+	@Test
+	public void findsTheBlockOfAnX() {
+		CompressedSeries series = new CompressedSeries(10);
+		for (int i = 0; i < 100; i++) {
+			series.append(i * 2, i);
+		}
+		assertEquals(0, series.findBlock(-1));
+		assertEquals(0, series.findBlock(19));
+		assertEquals(1, series.findBlock(20));
+		assertEquals(9, series.findBlock(1000));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsDecreasingX() {
+		CompressedSeries series = new CompressedSeries();
+		series.append(10, 0);
+		series.append(9, 0);
+	}
+
+	@Test
+	public void staysCompactForRegularSamples() {
+		CompressedSeries series = new CompressedSeries();
+		for (int i = 0; i < 100000; i++) {
+			series.append(i * 1000L, i % 100);
+		}
+		// Raw storage would take 12 bytes per sample
+		assertTrue(series.getByteCount() < 100000 * 4);
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.echo.holographlibrary;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+	private static double[] gaussian(int count, long seed) {
+		Random random = new Random(seed);
+		double[] samples = new double[count];
+		for (int i = 0; i < count; i++) {
+			samples[i] = random.nextGaussian() * 20;
+		}
+		return samples;
+	}
+
+	// Large batches are binned in parallel and the partial counts merged; small
+	// ones are binned directly. Both must count the same.
+	@Test
+	public void parallelBinningMatchesSerialBinning() {
+		double[] samples = gaussian(500000, 3);
+		samples[7] = Double.NaN;
+
+		Histogram parallel = new Histogram(-50, 50, 40);
+		parallel.addSamples(samples);
+
+		Histogram serial = new Histogram(-50, 50, 40);
+		for (int from = 0; from < samples.length; from += 1000) {
+			serial.addSamples(samples, from, Math.min(1000, samples.length - from));
+		}
+
+		long total = parallel.getUnderflowCount() + parallel.getOverflowCount();
+		for (int i = 0; i < 40; i++) {
+			assertEquals(serial.getCount(i), parallel.getCount(i));
+			total += parallel.getCount(i);
+		}
+		assertEquals(serial.getUnderflowCount(), parallel.getUnderflowCount());
+		assertEquals(serial.getOverflowCount(), parallel.getOverflowCount());
+		assertEquals(samples.length - 1, total);
+	}
+
+	@Test
+	public void widensAutomaticBinsByMergingThem() {
+		double[] first = gaussian(10000, 4);
+		Histogram histogram = Histogram.fromSamples(first);
+		final int bins = histogram.getBinCount();
+		final double width = histogram.getBinEnd(0) - histogram.getBinStart(0);
+
+		histogram.addSamples(new double[] {histogram.getBinEnd(bins - 1) + 10 * width});
+
+		assertEquals(bins, histogram.getBinCount());
+		assertEquals(0, histogram.getOverflowCount());
+		long total = 0;
+		for (int i = 0; i < bins; i++) {
+			total += histogram.getCount(i);
+		}
+		assertEquals(first.length + 1, total);
+	}
+
+	@Test
+	public void binsOnEdges() {
+		Histogram histogram = new Histogram(new double[] {0, 1, 5, 10});
+		histogram.addSamples(new double[] {-1, 0, 1, 4.9, 5, 10, 11});
+		assertEquals(1, histogram.getUnderflowCount());
+		assertEquals(1, histogram.getCount(0));
+		assertEquals(2, histogram.getCount(1));
+		// The last edge belongs to the last bin
+		assertEquals(2, histogram.getCount(2));
+		assertEquals(1, histogram.getOverflowCount());
+	}
+
+	@Test
+	public void publishesCountsToTheBarMatrix() {
+		Histogram histogram = new Histogram(0, 10, 5);
+		BarMatrix matrix = histogram.getBarMatrix();
+		histogram.addSamples(new double[] {1, 1, 3, 9});
+		assertEquals(5, matrix.getCategoryCount());
+		assertEquals(2, matrix.getValue(0, 0), 0);
+		assertEquals(1, matrix.getValue(0, 1), 0);
+		assertEquals(1, matrix.getValue(0, 4), 0);
+		assertEquals(2, matrix.getMaxValue(), 0);
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.echo.holographlibrary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class PieLayoutTest {
+
+	private static final int SLICES = 50;
+	private static final float RADIUS = 300;
+	private static final float INNER_RADIUS = 200;
+
+	private final float[] mStartAngles = new float[SLICES];
+	private final float[] mSweepAngles = new float[SLICES];
+
+	@Before
+	public void setUp() {
+		double total = 0;
+		for (int i = 0; i < SLICES; i++) {
+			total += value(i);
+		}
+		float angle = PieLayout.START_ANGLE;
+		for (int i = 0; i < SLICES; i++) {
+			mStartAngles[i] = angle;
+			mSweepAngles[i] = PieLayout.getSweepAngle(value(i), total);
+			angle += mSweepAngles[i];
+		}
+	}
+
+	private static float value(int i) {
+		return 1 + i % 7;
+	}
+
+	private int findAt(double degrees, float distance) {
+		final double radians = Math.toRadians(degrees);
+		return PieLayout.findSlice((float) (Math.cos(radians) * distance), (float) (Math.sin(radians) * distance),
+				RADIUS, INNER_RADIUS, mStartAngles, mSweepAngles, SLICES);
+	}
+
+	@Test
+	public void sweepsAddUpToACircle() {
+		float sum = 0;
+		for (int i = 0; i < SLICES; i++) {
+			sum += mSweepAngles[i];
+		}
+		assertEquals(360, sum, 1e-3f);
+		assertEquals(0, PieLayout.getSweepAngle(5, 0), 0);
+	}
+
+	@Test
+	public void hitsTheSliceUnderATouch() {
+		for (int i = 0; i < SLICES; i++) {
+			assertEquals(i, findAt(mStartAngles[i] + mSweepAngles[i] / 2, 250));
+		}
+		// The first slice starts at 12 o'clock and runs clockwise
+		assertEquals(0, findAt(271, 250));
+		assertEquals(SLICES - 1, findAt(269, 250));
+	}
+
+	@Test
+	public void missesOutsideTheRing() {
+		assertEquals(-1, findAt(0, 100));
+		assertEquals(-1, findAt(0, 301));
+		assertEquals(-1, PieLayout.findSlice(0, -250, RADIUS, INNER_RADIUS, mStartAngles, mSweepAngles, 0));
+	}
+
+	// A press and release resolve the touched slice twice; neither may allocate
+	@Test
+	public void touchesDoNotAllocate() {
+		for (int i = 0; i < 1000; i++) {
+			findAt(i, 250);
+		}
+		final long before = Allocations.current();
+		int hits = 0;
+		for (int i = 0; i < 100000; i++) {
+			hits += findAt(i % 360, 250);
+		}
+		assertTrue(Allocations.current() - before < Allocations.SLACK);
+		assertTrue(hits > 0);
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.echo.holographlibrary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PieSelectionTest {
+
+	private static final int SLICES = 200;
+
+	private static PieSelection select(float[] values, int topSlices, float minSweepAngle) {
+		PieSelection selection = new PieSelection();
+		selection.ensureCapacity(values.length);
+		System.arraycopy(values, 0, selection.values, 0, values.length);
+		selection.select(values.length, topSlices, minSweepAngle);
+		return selection;
+	}
+
+	private static int[] displayed(PieSelection selection) {
+		int[] indices = new int[selection.getDisplayCount()];
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = selection.getDisplayIndex(i);
+		}
+		return indices;
+	}
+
+	@Test
+	public void keepsTheLargestSlicesInOrder() {
+		PieSelection selection = select(new float[] {5, 1, 9, 2, 7, 3}, 3, 0);
+		assertArrayEquals(new int[] {0, 2, 4, PieSelection.OTHER}, displayed(selection));
+		assertArrayEquals(new int[] {1, 3, 5}, selection.getOtherIndices());
+		assertEquals(6, selection.getOtherTotal(), 0);
+	}
+
+	@Test
+	public void drawsASingleLeftoverSliceAsItself() {
+		PieSelection selection = select(new float[] {5, 1, 9}, 2, 0);
+		assertArrayEquals(new int[] {0, 1, 2}, displayed(selection));
+		assertEquals(0, selection.getOtherIndices().length);
+	}
+
+	@Test
+	public void mergesSlicesBelowTheMinimumSweep() {
+		// 36 degrees is a tenth of the total of 100
+		PieSelection selection = select(new float[] {50, 5, 30, 4, 11}, 0, 36);
+		assertArrayEquals(new int[] {0, 2, 4, PieSelection.OTHER}, displayed(selection));
+	}
+
+	// Updates patched into the heaps must select what a fresh selection over
+	// the same values does
+	@Test
+	public void updatesMatchAFreshSelection() {
+		Random random = new Random(3);
+		float[] values = new float[SLICES];
+		for (int i = 0; i < SLICES; i++) {
+			values[i] = random.nextInt(1000);
+		}
+		PieSelection selection = select(values, 10, 2);
+		for (int n = 0; n < 5000; n++) {
+			final int index = random.nextInt(SLICES);
+			// Whole numbers keep the running totals exact
+			values[index] = random.nextInt(n % 100 == 0 ? 100000 : 1000);
+			selection.update(index, values[index]);
+
+			PieSelection fresh = select(values, 10, 2);
+			assertArrayEquals(displayedValues(values, fresh), displayedValues(values, selection), 0);
+			assertEquals(fresh.getTotal(), selection.getTotal(), 0);
+		}
+	}
+
+	// Slices with equal values may be kept either way, so compare the values
+	private static float[] displayedValues(float[] values, PieSelection selection) {
+		int[] indices = displayed(selection);
+		float[] result = new float[indices.length];
+		for (int i = 0; i < indices.length; i++) {
+			result[i] = indices[i] == PieSelection.OTHER ? -1 : values[indices[i]];
+		}
+		Arrays.sort(result);
+		return result;
+	}
+}
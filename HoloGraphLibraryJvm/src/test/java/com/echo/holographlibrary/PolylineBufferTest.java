@@ -0,0 +1,100 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.echo.holographlibrary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+public class PolylineBufferTest {
+
+	private static final int WIDTH = 1080;
+	private static final int HEIGHT = 720;
+
+	private final PolylineBuffer mPolyline = new PolylineBuffer();
+	private final Canvas mCanvas = new Canvas();
+	private final Paint mPaint = new Paint();
+
+	private void draw(float[] values) {
+		mPolyline.begin(mCanvas, mPaint);
+		for (int i = 0; i < values.length; i++) {
+			mPolyline.add((float) i * WIDTH / values.length, values[i]);
+		}
+		mPolyline.finish();
+	}
+
+	private static float[] randomLine(int count) {
+		Random random = new Random(6);
+		float[] values = new float[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = random.nextFloat() * HEIGHT;
+		}
+		return values;
+	}
+
+	// Dense points reduce to at most two segments per pixel column: the join
+	// from the previous column and the column's vertical extent
+	@Test
+	public void boundsTheDrawingOfATenThousandPointLine() {
+		draw(randomLine(10000));
+		assertTrue(mCanvas.getLineSegmentCount() <= 2 * WIDTH);
+		assertTrue(mCanvas.getDrawCallCount() <= 3);
+	}
+
+	@Test
+	public void drawsSparsePointsAsOneSegmentEach() {
+		draw(randomLine(100));
+		assertEquals(99, mCanvas.getLineSegmentCount());
+		assertEquals(1, mCanvas.getDrawCallCount());
+	}
+
+	@Test
+	public void leavesGapsAtNaN() {
+		float[] values = {1, 2, 3, Float.NaN, 4, 5};
+		draw(values);
+		assertEquals(3, mCanvas.getLineSegmentCount());
+	}
+
+	@Test
+	public void redrawsInTheSteadyStateWithoutAllocating() {
+		float[] values = randomLine(10000);
+		draw(values);
+		final int segments = mCanvas.getLineSegmentCount();
+		final int calls = mCanvas.getDrawCallCount();
+
+		final long before = Allocations.current();
+		for (int frame = 0; frame < 100; frame++) {
+			mCanvas.reset();
+			draw(values);
+		}
+		assertTrue(Allocations.current() - before < Allocations.SLACK);
+		assertEquals(segments, mCanvas.getLineSegmentCount());
+		assertEquals(calls, mCanvas.getDrawCallCount());
+	}
+}
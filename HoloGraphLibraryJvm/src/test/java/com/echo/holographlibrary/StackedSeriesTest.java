@@ -0,0 +1,94 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.echo.holographlibrary;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class StackedSeriesTest {
+
+	@Test
+	public void keepsPrefixSumsOfEveryColumn() {
+		StackedSeries series = new StackedSeries(3, 2);
+		Random random = new Random(5);
+		float[][] columns = new float[100][3];
+		for (int i = 0; i < columns.length; i++) {
+			for (int s = 0; s < 3; s++) {
+				columns[i][s] = random.nextFloat() * 10 - 2;
+			}
+			series.append(i, columns[i]);
+		}
+		for (int k = 0; k < 200; k++) {
+			final int s = random.nextInt(3);
+			final int i = random.nextInt(columns.length);
+			columns[i][s] = random.nextFloat() * 10 - 2;
+			series.set(s, i, columns[i][s]);
+		}
+
+		float min = 0, max = 0;
+		for (int i = 0; i < columns.length; i++) {
+			float total = 0;
+			for (int s = 0; s < 3; s++) {
+				total += columns[i][s];
+				assertEquals(columns[i][s], series.getValue(s, i), 0);
+				assertEquals(total, series.getTotal(s, i), 1e-4f);
+				min = Math.min(min, total);
+				max = Math.max(max, total);
+			}
+		}
+		assertEquals(min, series.getMinY(), 1e-4f);
+		assertEquals(max, series.getMaxY(), 1e-4f);
+	}
+
+	@Test
+	public void findsBoundsAgainAfterTheExtremeIsLowered() {
+		StackedSeries series = new StackedSeries(2);
+		series.append(0, new float[] {1, 1});
+		series.append(1, new float[] {5, 5});
+		assertEquals(10, series.getMaxY(), 0);
+		series.set(0, 1, 1);
+		assertEquals(6, series.getMaxY(), 0);
+		series.set(1, 0, -4);
+		assertEquals(-3, series.getMinY(), 0);
+	}
+
+	@Test
+	public void findsColumnRanges() {
+		StackedSeries series = new StackedSeries(1);
+		float[] values = {0};
+		for (int i = 0; i < 10; i++) {
+			series.append(i / 2, values);
+		}
+		assertEquals(2, series.lowerBound(1));
+		assertEquals(4, series.upperBound(1));
+		assertEquals(10, series.lowerBound(9));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsMissingValues() {
+		new StackedSeries(2).append(0, new float[] {1});
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ * 
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.echo.holographlibrary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TimeSeriesTest {
+
+	// A live window: appends at the end and trims at the start wrap around the
+	// arrays by compacting them in place
+	@Test
+	public void keepsALiveWindowAcrossCompactions() {
+		TimeSeries series = new TimeSeries(8);
+		for (long t = 0; t < 10000; t++) {
+			series.append(t, t * 0.5);
+			series.trimBefore(t - 5);
+			final long first = Math.max(0, t - 5);
+			assertEquals(t - first + 1, series.size());
+			for (int i = 0; i < series.size(); i++) {
+				assertEquals(first + i, series.getTime(i));
+				assertEquals((first + i) * 0.5, series.getValue(i), 0);
+			}
+		}
+	}
+
+	@Test
+	public void liveWindowDoesNotAllocate() {
+		TimeSeries series = new TimeSeries(64);
+		for (long t = 0; t < 1000; t++) {
+			series.append(t, t);
+			series.trimBefore(t - 20);
+		}
+		final long before = Allocations.current();
+		for (long t = 1000; t < 100000; t++) {
+			series.append(t, t);
+			series.trimBefore(t - 20);
+		}
+		assertTrue(Allocations.current() - before < Allocations.SLACK);
+	}
+
+	@Test
+	public void findsTimeRanges() {
+		TimeSeries series = new TimeSeries();
+		long[] times = {10, 20, 20, 20, 30, 40};
+		for (long time : times) {
+			series.append(time, 0);
+		}
+		assertEquals(0, series.lowerBound(5));
+		assertEquals(1, series.lowerBound(20));
+		assertEquals(4, series.upperBound(20));
+		assertEquals(6, series.lowerBound(41));
+		assertEquals(6, series.upperBound(40));
+
+		series.trimBefore(20);
+		assertEquals(5, series.size());
+		assertEquals(0, series.lowerBound(20));
+		assertEquals(3, series.upperBound(20));
+
+		TimeSeries.Window window = series.range(20, 30);
+		assertEquals(4, window.size());
+	}
+
+	@Test
+	public void findsTheNearestSample() {
+		TimeSeries series = new TimeSeries();
+		assertEquals(-1, series.findNearest(10));
+		long[] times = {10, 20, 30, 40};
+		for (long time : times) {
+			series.append(time, 0);
+		}
+		assertEquals(0, series.findNearest(-100));
+		assertEquals(0, series.findNearest(14.9));
+		assertEquals(1, series.findNearest(15.1));
+		assertEquals(2, series.findNearest(30));
+		assertEquals(3, series.findNearest(1000));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsDecreasingTime() {
+		TimeSeries series = new TimeSeries();
+		series.append(10, 0);
+		series.append(9, 0);
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ *
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+package com.echo.holographlibrarysample;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.util.AttributeSet;
+import android.widget.LinearLayout;
+
+/**
+ * LinearLayout that reports how long drawing its children took. The graphs
+ * rebuild their images in onDraw, so this times the work they do per frame
+ * rather than the time between frames.
+ */
+public class DrawTimingLayout extends LinearLayout {
+
+	private OnDrawTimedListener mListener;
+
+	public DrawTimingLayout(Context context) {
+		super(context);
+	}
+
+	public DrawTimingLayout(Context context, AttributeSet attrs) {
+		super(context, attrs);
+	}
+
+	public void setOnDrawTimedListener(OnDrawTimedListener listener) {
+		mListener = listener;
+	}
+
+	@Override
+	protected void dispatchDraw(Canvas canvas) {
+		long start = System.nanoTime();
+		super.dispatchDraw(canvas);
+		if (mListener != null) {
+			mListener.onDrawTimed(System.nanoTime() - start);
+		}
+	}
+
+	public interface OnDrawTimedListener {
+		abstract void onDrawTimed(long nanos);
+	}
+}
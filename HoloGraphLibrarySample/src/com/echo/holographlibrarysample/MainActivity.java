@@ -63,6 +63,7 @@ public class MainActivity extends SherlockFragmentActivity {
 		LineFragment lineFrag = new LineFragment();
         BarFragment barFrag = new BarFragment();
         PieFragment pieFrag = new PieFragment();
+        StressFragment stressFrag = new StressFragment();
 		
         mTabsAdapter = new TabsAdapter(this, mViewPager);
         mTabsAdapter.addTab(bar.newTab().setText("Line"),
@@ -71,6 +72,8 @@ public class MainActivity extends SherlockFragmentActivity {
                 BarFragment.class, null, barFrag);
         mTabsAdapter.addTab(bar.newTab().setText("Pie"),
                 PieFragment.class, null, pieFrag);
+        mTabsAdapter.addTab(bar.newTab().setText("Stress"),
+                StressFragment.class, null, stressFrag);
         mViewPager.setOffscreenPageLimit(mTabsAdapter.getCount()-1);
 	}
 	
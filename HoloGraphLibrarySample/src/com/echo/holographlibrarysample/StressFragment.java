@@ -0,0 +1,366 @@
+/*
+ * 	   Created by Daniel Nadeau
+ * 	   daniel.nadeau01@gmail.com
+ * 	   danielnadeau.blogspot.com
+ *
+ * 	   Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+
+package com.echo.holographlibrarysample;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import android.graphics.Color;
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.Handler;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.AdapterView.OnItemSelectedListener;
+import android.widget.LinearLayout;
+import android.widget.SeekBar;
+import android.widget.SeekBar.OnSeekBarChangeListener;
+import android.widget.Spinner;
+import android.widget.TextView;
+
+import com.actionbarsherlock.app.SherlockFragment;
+import com.echo.holographlibrary.Bar;
+import com.echo.holographlibrary.BarGraph;
+import com.echo.holographlibrary.Line;
+import com.echo.holographlibrary.LineGraph;
+import com.echo.holographlibrary.LinePoint;
+import com.echo.holographlibrary.PieGraph;
+import com.echo.holographlibrary.PieSlice;
+
+public class StressFragment extends SherlockFragment {
+
+	private static final int TYPE_LINE = 0;
+	private static final int TYPE_BAR = 1;
+	private static final int TYPE_PIE = 2;
+
+	private static final int[] SERIES_LENGTHS = {100, 1000, 5000, 10000, 50000, 100000};
+	private static final int[] BAR_COUNTS = {10, 50, 100, 300, 1000};
+	private static final int[] UPDATE_RATES = {0, 1, 5, 10, 30, 60};
+	private static final int MAX_LINES = 10;
+	private static final int MAX_GRAPHS = 8;
+	private static final int PIE_SLICES = 8;
+
+	private static final long FRAME_NANOS = 16666667L;
+	private static final long STATS_INTERVAL = 1000;
+
+	private static final String[] COLORS = {"#99CC00", "#FFBB33", "#AA66CC", "#33B5E5", "#FF4444"};
+
+	private final Handler mHandler = new Handler();
+	private final Random mRandom = new Random();
+	private final ArrayList<View> mGraphs = new ArrayList<View>();
+
+	private DrawTimingLayout mGraphContainer;
+	private TextView mConfigText;
+	private TextView mStatsText;
+	private String[] mTypeNames;
+
+	private int mGraphType = TYPE_LINE;
+	private int mSeriesLength = SERIES_LENGTHS[1];
+	private int mLineCount = 1;
+	private int mBarCount = BAR_COUNTS[0];
+	private int mGraphCount = 1;
+	private int mUpdateRate = UPDATE_RATES[0];
+	private int mTick = 0;
+	private boolean mRunning = false;
+
+	private long mFrameNanosSum = 0;
+	private long mWorstFrameNanos = 0;
+	private int mFrameCount = 0;
+	private int mJankCount = 0;
+	private int mTotalJankCount = 0;
+
+	@Override
+	public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+		final View v = inflater.inflate(R.layout.fragment_stress, container, false);
+		mTypeNames = getResources().getStringArray(R.array.stress_graph_types);
+		mGraphContainer = (DrawTimingLayout)v.findViewById(R.id.stress_graphs_container);
+		mConfigText = (TextView)v.findViewById(R.id.stress_config);
+		mStatsText = (TextView)v.findViewById(R.id.stress_stats);
+
+		Spinner type = (Spinner)v.findViewById(R.id.stress_type);
+		type.setOnItemSelectedListener(new OnItemSelectedListener(){
+
+			@Override
+			public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+				if (mGraphType != position) {
+					mGraphType = position;
+					rebuildGraphs();
+				}
+			}
+
+			@Override
+			public void onNothingSelected(AdapterView<?> parent) {
+			}
+
+		});
+
+		bindSeekBar(v, R.id.stress_length, SERIES_LENGTHS.length - 1, 1);
+		bindSeekBar(v, R.id.stress_lines, MAX_LINES - 1, mLineCount - 1);
+		bindSeekBar(v, R.id.stress_bars, BAR_COUNTS.length - 1, 0);
+		bindSeekBar(v, R.id.stress_graphs, MAX_GRAPHS - 1, mGraphCount - 1);
+		bindSeekBar(v, R.id.stress_rate, UPDATE_RATES.length - 1, 0);
+
+		mGraphContainer.setOnDrawTimedListener(mFrameListener);
+
+		rebuildGraphs();
+		return v;
+	}
+
+	@Override
+	public void onResume() {
+		super.onResume();
+		mRunning = true;
+		mHandler.postDelayed(mStatsRunnable, STATS_INTERVAL);
+		scheduleUpdate();
+	}
+
+	@Override
+	public void onPause() {
+		mRunning = false;
+		mHandler.removeCallbacks(mStatsRunnable);
+		mHandler.removeCallbacks(mUpdateRunnable);
+		super.onPause();
+	}
+
+	private void bindSeekBar(View root, final int id, int max, int progress) {
+		SeekBar bar = (SeekBar)root.findViewById(id);
+		bar.setMax(max);
+		bar.setProgress(progress);
+		bar.setOnSeekBarChangeListener(new OnSeekBarChangeListener(){
+
+			@Override
+			public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+				if (id == R.id.stress_length) {
+					mSeriesLength = SERIES_LENGTHS[progress];
+				} else if (id == R.id.stress_lines) {
+					mLineCount = progress + 1;
+				} else if (id == R.id.stress_bars) {
+					mBarCount = BAR_COUNTS[progress];
+				} else if (id == R.id.stress_graphs) {
+					mGraphCount = progress + 1;
+				} else if (id == R.id.stress_rate) {
+					mUpdateRate = UPDATE_RATES[progress];
+					mHandler.removeCallbacks(mUpdateRunnable);
+					scheduleUpdate();
+					updateConfigText();
+					return;
+				}
+				rebuildGraphs();
+			}
+
+			@Override
+			public void onStartTrackingTouch(SeekBar seekBar) {
+			}
+
+			@Override
+			public void onStopTrackingTouch(SeekBar seekBar) {
+			}
+
+		});
+	}
+
+	private void rebuildGraphs() {
+		mGraphContainer.removeAllViews();
+		mGraphs.clear();
+
+		for (int i = 0; i < mGraphCount; i++) {
+			View graph;
+			switch (mGraphType) {
+			case TYPE_BAR:
+				graph = createBarGraph();
+				break;
+			case TYPE_PIE:
+				graph = createPieGraph();
+				break;
+			default:
+				graph = createLineGraph();
+				break;
+			}
+			mGraphs.add(graph);
+			mGraphContainer.addView(graph, new LinearLayout.LayoutParams(
+					LinearLayout.LayoutParams.MATCH_PARENT, 0, 1f));
+		}
+
+		resetStats();
+		updateConfigText();
+	}
+
+	private LineGraph createLineGraph() {
+		LineGraph graph = new LineGraph(getActivity());
+		for (int l = 0; l < mLineCount; l++) {
+			Line line = new Line();
+			line.setColor(Color.parseColor(COLORS[l % COLORS.length]));
+			line.setShowingPoints(mSeriesLength <= 100);
+			for (int i = 0; i < mSeriesLength; i++) {
+				LinePoint p = new LinePoint();
+				p.setX(i);
+				p.setY(sample(l, i));
+				line.addPoint(p);
+			}
+			graph.addLine(line);
+		}
+		graph.setRangeY(0, 100);
+		return graph;
+	}
+
+	private BarGraph createBarGraph() {
+		BarGraph graph = new BarGraph(getActivity());
+		ArrayList<Bar> bars = new ArrayList<Bar>();
+		for (int i = 0; i < mBarCount; i++) {
+			Bar bar = new Bar();
+			bar.setColor(Color.parseColor(COLORS[i % COLORS.length]));
+			bar.setName(String.valueOf(i));
+			bar.setValue(sample(0, i));
+			bars.add(bar);
+		}
+		graph.setBars(bars);
+		return graph;
+	}
+
+	private PieGraph createPieGraph() {
+		PieGraph graph = new PieGraph(getActivity());
+		for (int i = 0; i < PIE_SLICES; i++) {
+			PieSlice slice = new PieSlice();
+			slice.setColor(Color.parseColor(COLORS[i % COLORS.length]));
+			slice.setValue(sample(0, i));
+			graph.addSlice(slice);
+		}
+		return graph;
+	}
+
+	private float sample(int series, int index) {
+		return (float) (50 + 35 * Math.sin((index + mTick) * 0.05 + series) + 10 * mRandom.nextFloat());
+	}
+
+	// Pushes a new frame of data into every graph through the public API,
+	// the same way a live dashboard would.
+	private void updateGraphs() {
+		mTick++;
+		for (View v : mGraphs) {
+			if (v instanceof LineGraph) {
+				LineGraph graph = (LineGraph)v;
+				ArrayList<Line> lines = new ArrayList<Line>(graph.getLines());
+				for (int l = 0; l < lines.size(); l++) {
+					Line line = lines.get(l);
+					for (int i = 0; i < line.getSize(); i++) {
+						line.getPoint(i).setY(sample(l, i));
+					}
+				}
+				graph.removeAllLines();
+				for (Line line : lines) {
+					graph.addLine(line);
+				}
+			} else if (v instanceof BarGraph) {
+				BarGraph graph = (BarGraph)v;
+				ArrayList<Bar> bars = graph.getBars();
+				for (int i = 0; i < bars.size(); i++) {
+					bars.get(i).setValue(sample(0, i));
+				}
+				graph.setBars(bars);
+			} else if (v instanceof PieGraph) {
+				PieGraph graph = (PieGraph)v;
+				ArrayList<PieSlice> slices = graph.getSlices();
+				for (int i = 0; i < slices.size(); i++) {
+					slices.get(i).setValue(sample(0, i));
+				}
+				graph.setSlices(slices);
+			}
+		}
+	}
+
+	private void scheduleUpdate() {
+		if (mRunning && mUpdateRate > 0) {
+			mHandler.postDelayed(mUpdateRunnable, 1000 / mUpdateRate);
+		}
+	}
+
+	private final Runnable mUpdateRunnable = new Runnable() {
+
+		@Override
+		public void run() {
+			updateGraphs();
+			scheduleUpdate();
+		}
+
+	};
+
+	// Times the drawing of the graphs themselves; the gap between frames would
+	// mostly measure the update rate
+	private final DrawTimingLayout.OnDrawTimedListener mFrameListener = new DrawTimingLayout.OnDrawTimedListener() {
+
+		@Override
+		public void onDrawTimed(long nanos) {
+			mFrameNanosSum += nanos;
+			mFrameCount++;
+			if (nanos > mWorstFrameNanos) {
+				mWorstFrameNanos = nanos;
+			}
+			// Drawing that takes longer than a frame makes the frame miss its vsync
+			if (nanos > FRAME_NANOS) {
+				mJankCount++;
+				mTotalJankCount++;
+			}
+		}
+
+	};
+
+	private final Runnable mStatsRunnable = new Runnable() {
+
+		@Override
+		public void run() {
+			Runtime runtime = Runtime.getRuntime();
+			long heap = (runtime.totalMemory() - runtime.freeMemory()) / 1024;
+			long nativeHeap = Debug.getNativeHeapAllocatedSize() / 1024;
+			float average = mFrameCount > 0 ? mFrameNanosSum / (float) mFrameCount / 1000000f : 0;
+
+			mStatsText.setText(getString(R.string.stress_stats,
+					average, mWorstFrameNanos / 1000000f, mJankCount, mTotalJankCount, heap, nativeHeap));
+
+			mFrameNanosSum = 0;
+			mFrameCount = 0;
+			mWorstFrameNanos = 0;
+			mJankCount = 0;
+
+			if (mRunning) {
+				mHandler.postDelayed(this, STATS_INTERVAL);
+			}
+		}
+
+	};
+
+	private void resetStats() {
+		mFrameNanosSum = 0;
+		mFrameCount = 0;
+		mWorstFrameNanos = 0;
+		mJankCount = 0;
+		mTotalJankCount = 0;
+	}
+
+	private void updateConfigText() {
+		mConfigText.setText(getString(R.string.stress_config, mTypeNames[mGraphType],
+				mSeriesLength, mLineCount, mBarCount, mGraphCount, mUpdateRate));
+	}
+}